@@ -124,4 +124,15 @@ public interface ChatChannel extends Keyed, ChatComponentRenderer {
      */
     boolean emptyRadiusRecipientsMessage();
 
+    /**
+     * If messages in this channel are sent to other servers over the messaging service.<br>
+     * Channels with a radius are local to a world or server by definition.
+     *
+     * @return if messages in this channel are sent to other servers
+     * @since 3.0.0
+     */
+    default boolean crossServer() {
+        return this.radius() < 0;
+    }
+
 }
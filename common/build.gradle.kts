@@ -42,6 +42,7 @@ dependencies {
   compileOnlyApi(libs.flywayMysql) {
     isTransitive = false
   }
+  compileOnlyApi(libs.h2)
 
   // Messaging
   api(libs.messenger)
@@ -49,6 +50,7 @@ dependencies {
   api(libs.messengerRabbitmq)
   api(libs.messengerRedis)
   compileOnlyApi(libs.netty)
+  compileOnlyApi(libs.zstdjni)
 
   api(libs.event)
   api(libs.registry) {
@@ -65,4 +67,24 @@ dependencies {
 
   // Plugins
   compileOnly(libs.miniplaceholders)
+
+  // Cluster simulation and compression benchmark, not unit tests
+  testImplementation(platform(libs.log4jBom))
+  testImplementation(libs.log4jApi)
+  testImplementation(libs.netty)
+  testImplementation(libs.zstdjni)
+}
+
+tasks.register<JavaExec>("clusterSimulation") {
+  description = "Simulates a network of Carbon nodes on the local broker. Pass settings with --args."
+  classpath = sourceSets.test.get().runtimeClasspath
+  mainClass.set("net.draycia.carbon.common.messaging.LocalClusterSimulation")
+  systemProperty("org.apache.logging.log4j.simplelog.level", "INFO")
+}
+
+tasks.register<JavaExec>("compressionBenchmark") {
+  description = "Measures packet compression on simulated chat traffic, or trains the dictionary with --args=\"--train <file>\"."
+  classpath = sourceSets.test.get().runtimeClasspath
+  mainClass.set("net.draycia.carbon.common.messaging.PacketCompressionBenchmark")
+  systemProperty("org.apache.logging.log4j.simplelog.level", "INFO")
 }
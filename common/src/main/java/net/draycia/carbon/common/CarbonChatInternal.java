@@ -38,14 +38,16 @@ import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.integration.Integration;
 import net.draycia.carbon.common.listeners.Listener;
 import net.draycia.carbon.common.messages.CarbonMessages;
+import net.draycia.carbon.common.messaging.LocalRoster;
 import net.draycia.carbon.common.messaging.MessagingManager;
-import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.metrics.MetricsExporter;
 import net.draycia.carbon.common.users.PlayerUtils;
 import net.draycia.carbon.common.users.ProfileCache;
 import net.draycia.carbon.common.users.ProfileResolver;
 import net.draycia.carbon.common.users.UserManagerInternal;
 import net.draycia.carbon.common.util.CloudUtils;
 import net.draycia.carbon.common.util.ConcurrentUtil;
+import net.draycia.carbon.common.util.StartupPhases;
 import net.draycia.carbon.common.util.UpdateChecker;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -96,13 +98,20 @@ public abstract class CarbonChatInternal implements CarbonChat {
     }
 
     protected void init() {
+        final StartupPhases phases = this.injector.getInstance(StartupPhases.class);
+
         // Listeners
-        final Set<Listener> listeners = this.injector.getInstance(Key.get(new TypeLiteral<Set<Listener>>() {}));
+        phases.run("listeners", () -> this.injector.getInstance(Key.get(new TypeLiteral<Set<Listener>>() {})));
 
         // Commands
         // This is a bit awkward looking
-        final Set<CarbonCommand> commands = this.injector.getInstance(Key.get(new TypeLiteral<Set<CarbonCommand>>() {}));
-        CloudUtils.registerCommands(commands, this.injector.getInstance(ConfigManager.class).loadCommandSettings());
+        phases.run("commands", () -> {
+            final Set<CarbonCommand> commands = this.injector.getInstance(Key.get(new TypeLiteral<Set<CarbonCommand>>() {}));
+            CloudUtils.registerCommands(commands, this.injector.getInstance(ConfigManager.class).loadCommandSettings());
+        });
+
+        // Built on this thread like everything else resolved from the injector, only connecting happens in the background
+        final MessagingManager messaging = this.messagingManager.get();
 
         this.periodicTasks.scheduleAtFixedRate(
             () -> PlayerUtils.saveLoggedInPlayers(this.carbonServer, this.userManager, this.logger),
@@ -123,21 +132,29 @@ public abstract class CarbonChatInternal implements CarbonChat {
             TimeUnit.SECONDS
         );
 
-        // Integration
-        final Set<Integration> integrations = this.injector().getInstance(Key.get(new TypeLiteral<>() {}));
+        // Integrations and channels register commands, which stays on this thread
+        phases.run("integrations", () -> {
+            final Set<Integration> integrations = this.injector().getInstance(Key.get(new TypeLiteral<>() {}));
 
-        for (final Integration integration : integrations) {
-            if (!integration.eligible()) {
-                continue;
-            }
+            for (final Integration integration : integrations) {
+                if (!integration.eligible()) {
+                    continue;
+                }
 
-            integration.register();
-        }
+                integration.register();
+            }
+        });
 
         // Load channels
-        this.channelRegistry().loadConfigChannels(this.carbonMessages);
+        phases.run("channels", () -> this.channelRegistry().loadConfigChannels(this.carbonMessages));
+
+        // Incoming packets refer to channels, connect once they are loaded while storage may still be opening
+        phases.runAsync("messaging", messaging::connect);
+
+        // Waits for storage and messaging
+        phases.complete();
 
-        this.messagingManager.get();
+        this.injector.getInstance(MetricsExporter.class).start();
     }
 
     protected final void checkVersion() {
@@ -152,13 +169,18 @@ public abstract class CarbonChatInternal implements CarbonChat {
     }
 
     protected void shutdown() {
-        this.messagingManager.get().queuePacket(() -> this.injector.getInstance(PacketFactory.class).clearLocalPlayersPacket());
+        this.injector.getInstance(LocalRoster.class).clear();
         this.messagingManager.get().onShutdown();
+        this.channelRegistry.shutdown();
+        this.injector.getInstance(MetricsExporter.class).shutdown();
         ConcurrentUtil.shutdownExecutor(this.periodicTasks, TimeUnit.MILLISECONDS, 500);
         this.profileCache.save();
         this.profileResolver.shutdown();
         this.userManager.shutdown();
         this.commandExecutor.shutdown();
+        final ExecutionCoordinatorHolder.QueueWait.Stats commands = this.commandExecutor.queueWait().stats();
+        this.logger.info("Ran {} commands, waiting {}ms on average and at most {}ms for a command thread.",
+            commands.commands(), TimeUnit.NANOSECONDS.toMillis(commands.averageWaitNanos()), TimeUnit.NANOSECONDS.toMillis(commands.maxWaitNanos()));
     }
 
     public Logger logger() {
@@ -20,7 +20,6 @@
 package net.draycia.carbon.common;
 
 import com.google.inject.AbstractModule;
-import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
@@ -33,7 +32,6 @@ import com.google.inject.multibindings.Multibinder;
 import io.leangen.geantyref.TypeToken;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.nio.file.Path;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import net.draycia.carbon.api.channels.ChannelRegistry;
@@ -52,6 +50,8 @@ import net.draycia.carbon.common.command.commands.IgnoreCommand;
 import net.draycia.carbon.common.command.commands.IgnoreListCommand;
 import net.draycia.carbon.common.command.commands.JoinCommand;
 import net.draycia.carbon.common.command.commands.LeaveCommand;
+import net.draycia.carbon.common.command.commands.MetricsCommand;
+import net.draycia.carbon.common.command.commands.MigrateCommand;
 import net.draycia.carbon.common.command.commands.MuteCommand;
 import net.draycia.carbon.common.command.commands.MuteInfoCommand;
 import net.draycia.carbon.common.command.commands.NicknameCommand;
@@ -64,7 +64,6 @@ import net.draycia.carbon.common.command.commands.UnmuteCommand;
 import net.draycia.carbon.common.command.commands.UpdateUsernameCommand;
 import net.draycia.carbon.common.command.commands.WhisperCommand;
 import net.draycia.carbon.common.config.ConfigManager;
-import net.draycia.carbon.common.config.DatabaseSettings;
 import net.draycia.carbon.common.event.CarbonEventHandlerImpl;
 import net.draycia.carbon.common.listeners.DeafenHandler;
 import net.draycia.carbon.common.listeners.HyperlinkHandler;
@@ -95,16 +94,11 @@ import net.draycia.carbon.common.users.Backing;
 import net.draycia.carbon.common.users.CarbonPlayerCommon;
 import net.draycia.carbon.common.users.NetworkUsers;
 import net.draycia.carbon.common.users.PlatformUserManager;
+import net.draycia.carbon.common.users.UserManagerFactory;
 import net.draycia.carbon.common.users.UserManagerInternal;
-import net.draycia.carbon.common.users.db.DatabaseUserManager;
-import net.draycia.carbon.common.users.db.argument.BinaryUUIDArgumentFactory;
-import net.draycia.carbon.common.users.db.mapper.BinaryUUIDColumnMapper;
-import net.draycia.carbon.common.users.db.mapper.NativeUUIDColumnMapper;
-import net.draycia.carbon.common.users.json.JSONUserManager;
 import net.draycia.carbon.common.util.CloudUtils;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import net.draycia.carbon.common.util.Exceptions;
-import net.draycia.carbon.common.util.FileUtil;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
@@ -113,8 +107,6 @@ import net.kyori.moonshine.exception.scan.UnscannableMethodException;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
-import org.jdbi.v3.core.h2.H2DatabasePlugin;
-import org.jdbi.v3.postgres.PostgresPlugin;
 import org.spongepowered.configurate.util.NamingSchemes;
 
 @DefaultQualifier(NonNull.class)
@@ -124,31 +116,13 @@ public final class CarbonCommonModule extends AbstractModule {
     @Backing
     @Singleton
     public UserManagerInternal<CarbonPlayerCommon> userManager(
-        final @DataDirectory Path dataDirectory,
         final ConfigManager configManager,
         final Logger logger,
-        final Injector injector
+        final UserManagerFactory userManagerFactory
     ) throws IOException {
         logger.info("Initializing " + configManager.primaryConfig().storageType() + " storage manager...");
 
-        return switch (configManager.primaryConfig().storageType()) {
-            case MYSQL -> injector.getInstance(DatabaseUserManager.Factory.class).create(
-                "queries/migrations/mysql",
-                jdbi -> jdbi.registerArgument(new BinaryUUIDArgumentFactory())
-                    .registerColumnMapper(UUID.class, new BinaryUUIDColumnMapper())
-            );
-            case PSQL -> injector.getInstance(DatabaseUserManager.Factory.class).create(
-                "queries/migrations/postgresql",
-                jdbi -> jdbi.registerColumnMapper(UUID.class, new NativeUUIDColumnMapper())
-                    .installPlugin(new PostgresPlugin())
-            );
-            case H2 -> injector.getInstance(DatabaseUserManager.Factory.class).create(
-                "queries/migrations/h2",
-                jdbi -> jdbi.installPlugin(new H2DatabasePlugin()),
-                new DatabaseSettings("jdbc:h2:" + FileUtil.mkParentDirs(dataDirectory.resolve("users/userdata-h2")).toAbsolutePath() + ";MODE=MySQL", "", "")
-            );
-            case JSON -> injector.getInstance(JSONUserManager.class);
-        };
+        return userManagerFactory.create(configManager.primaryConfig().storageType());
     }
 
     @Provides
@@ -230,6 +204,8 @@ public final class CarbonCommonModule extends AbstractModule {
         commands.addBinding().to(DebugCommand.class).in(Scopes.SINGLETON);
         commands.addBinding().to(HelpCommand.class).in(Scopes.SINGLETON);
         commands.addBinding().to(IgnoreCommand.class).in(Scopes.SINGLETON);
+        commands.addBinding().to(MetricsCommand.class).in(Scopes.SINGLETON);
+        commands.addBinding().to(MigrateCommand.class).in(Scopes.SINGLETON);
         commands.addBinding().to(MuteCommand.class).in(Scopes.SINGLETON);
         commands.addBinding().to(MuteInfoCommand.class).in(Scopes.SINGLETON);
         commands.addBinding().to(NicknameCommand.class).in(Scopes.SINGLETON);
@@ -58,7 +58,9 @@ import net.draycia.carbon.common.event.events.CarbonReloadEvent;
 import net.draycia.carbon.common.event.events.ChannelRegisterEventImpl;
 import net.draycia.carbon.common.listeners.ChatListenerInternal;
 import net.draycia.carbon.common.messages.CarbonMessages;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
 import net.draycia.carbon.common.users.ConsoleCarbonPlayer;
+import net.draycia.carbon.common.util.DirectoryWatcher;
 import net.draycia.carbon.common.util.Exceptions;
 import net.draycia.carbon.common.util.FileUtil;
 import net.kyori.adventure.audience.Audience;
@@ -98,6 +100,11 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
 
     private volatile Registry<Key, ChatChannel> channelRegistry = Registry.create();
     private final Set<Key> configChannels = ConcurrentHashMap.newKeySet();
+    // content hash and channel of each config file as last loaded, guarded by this
+    private final Map<Path, LoadedChannel> loadedChannels = new HashMap<>();
+    private @Nullable DirectoryWatcher watcher;
+
+    private record LoadedChannel(String hash, ChatChannel channel) {}
     //
     // private final BiMap<Key, ChatChannel> channelMap = Maps.synchronizedBiMap(HashBiMap.create());
 
@@ -108,9 +115,10 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         final Logger logger,
         final ConfigManager config,
         final CarbonMessages carbonMessages,
-        final CarbonEventHandler events
+        final CarbonEventHandler events,
+        final CarbonMetrics metrics
     ) {
-        super(events, carbonMessages, config);
+        super(events, carbonMessages, config, metrics);
         this.configChannelDir = dataDirectory.resolve("channels");
         this.injector = injector;
         this.logger = logger;
@@ -157,7 +165,7 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         return node;
     }
 
-    public void reloadConfigChannels() {
+    public synchronized void reloadConfigChannels() {
         final Registry<Key, ChatChannel> newRegistry = Registry.create();
 
         // Copy API registrations over
@@ -171,22 +179,24 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         this.configChannels.clear();
 
         final Registry<Key, ChatChannel> oldRegistry = this.channelRegistry;
-        this.channelRegistry = newRegistry;
 
-        this.loadConfigChannels_(this.carbonMessages);
+        // Fill the new registry before publishing it, lookups keep using the old one until then
+        this.loadConfigChannels_(this.carbonMessages, newRegistry);
 
         // Re-add any deleted channels; users must restart for them to be removed
         // (don't want to leave behind commands that just error, or confuse addons)
         for (final Key old : oldConfigChannels) {
             if (!this.configChannels.contains(old)) {
                 this.configChannels.add(old);
-                this.channelRegistry.register(old, oldRegistry.getHolder(old).valueOrThrow());
+                newRegistry.register(old, oldRegistry.getHolder(old).valueOrThrow());
                 this.logger.warn("The config file for channel [{}] was deleted, but removing " +
                     "channels at runtime is not currently supported. You must restart the plugin " +
                     "for the removal to take effect.", old);
             }
         }
 
+        this.channelRegistry = newRegistry;
+
         // Determine new channels and fire event if needed
         final Set<Key> newConfigChannels = new HashSet<>();
         for (final Key configChannel : this.configChannels) {
@@ -199,12 +209,24 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         }
     }
 
-    public void loadConfigChannels(final CarbonMessages messages) {
-        this.loadConfigChannels_(messages);
+    public synchronized void loadConfigChannels(final CarbonMessages messages) {
+        this.loadConfigChannels_(messages, this.channelRegistry);
         this.eventHandler.emit(new ChannelRegisterEventImpl(this, Set.copyOf(this.configChannels)));
+
+        // Edited channel files are picked up without a full reload
+        if (this.watcher == null && Files.isDirectory(this.configChannelDir)) {
+            this.watcher = DirectoryWatcher.watch(this.logger, "Channel Config Watcher", this.configChannelDir, this::reloadConfigChannels);
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (this.watcher != null) {
+            this.watcher.close();
+            this.watcher = null;
+        }
     }
 
-    private void loadConfigChannels_(final CarbonMessages messages) {
+    private void loadConfigChannels_(final CarbonMessages messages, final Registry<Key, ChatChannel> registry) {
         this.logger.info("Loading config channels...");
         this.defaultKey = this.config.primaryConfig().defaultChannel();
 
@@ -225,38 +247,59 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
             channelConfigs = FileUtil.listDirectoryEntries(this.configChannelDir, "*.conf");
         }
 
+        this.loadedChannels.keySet().retainAll(channelConfigs);
+        int reused = 0;
+
         for (final Path channelConfigFile : channelConfigs) {
             final String fileName = channelConfigFile.getFileName().toString();
             if (!fileName.endsWith(".conf")) {
                 continue;
             }
 
-            final @Nullable ChatChannel chatChannel = this.loadChannel(channelConfigFile);
-            if (chatChannel == null) {
-                continue;
+            final @Nullable LoadedChannel previous = this.loadedChannels.get(channelConfigFile);
+            final @Nullable String hash = this.hash(channelConfigFile);
+            final ChatChannel chatChannel;
+            if (previous != null && previous.hash().equals(hash)) {
+                chatChannel = previous.channel();
+                reused++;
+            } else {
+                final @Nullable LoadedChannel loaded = this.loadChannel(channelConfigFile, hash);
+                if (loaded != null) {
+                    this.injector.injectMembers(loaded.channel());
+                    this.loadedChannels.put(channelConfigFile, loaded);
+                    chatChannel = loaded.channel();
+                } else if (previous != null) {
+                    this.logger.warn("Keeping the previously loaded version of {}", channelConfigFile);
+                    chatChannel = previous.channel();
+                } else {
+                    continue;
+                }
             }
             final Key channelKey = chatChannel.key();
             if (this.defaultKey.equals(channelKey)) {
                 this.logger.info("Default channel is [{}]", channelKey);
             }
 
-            if (this.channelRegistry.keys().contains(channelKey)) {
+            if (registry.keys().contains(channelKey)) {
                 this.logger.warn("Channel with key [{}] has already been registered, skipping {}", channelKey, channelConfigFile);
                 continue;
             }
 
-            this.injector.injectMembers(chatChannel);
             this.configChannels.add(chatChannel.key());
-            this.register(chatChannel, false);
+            this.register(registry, chatChannel);
+        }
+
+        if (reused > 0) {
+            this.logger.info("{} channel config(s) unchanged since the last load", reused);
         }
 
-        if (this.channel(this.defaultKey) == null) {
+        if (registry.getHolder(this.defaultKey) == null) {
             this.logger.warn("No default channel found! Default channel key: [{}]", this.defaultKey());
         }
 
         final List<String> channelList = new ArrayList<>();
 
-        for (final Key key : this.keys()) {
+        for (final Key key : registry.keys()) {
             channelList.add(key.asString());
         }
 
@@ -296,22 +339,26 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         }
     }
 
-    private @Nullable ChatChannel loadChannel(final Path channelFile) {
+    private @Nullable LoadedChannel loadChannel(final Path channelFile, final @Nullable String hash) {
         try {
             final @Nullable SpecialHandler<?> special = this.handlers.get(channelFile.getFileName().toString());
             final Class<? extends ConfigChatChannel> type = special == null ? ConfigChatChannel.class : special.cls();
 
             final ConfigurationLoader<?> loader = this.config.configurationLoader(channelFile, ConfigManager.extractHeader(type));
-            final ConfigurationNode loaded = upgradeConfigChatChannelNode(loader.load());
+            final ConfigurationNode node = loader.load();
+            final ConfigurationNode original = node.copy();
+            final ConfigurationNode loaded = upgradeConfigChatChannelNode(node);
             final @Nullable ConfigChatChannel channel = loaded.get(type);
             if (channel == null) {
                 throw new ConfigurateException("Config deserialized to null.");
             }
 
             loaded.set(type, channel);
-            loader.save(loaded);
+            final boolean saved = ConfigManager.saveIfChanged(loader, original, loaded);
 
-            return channel;
+            // Hashed before loading, so edits made while loading are seen as changes next time
+            final @Nullable String loadedHash = saved ? this.hash(channelFile) : hash;
+            return new LoadedChannel(loadedHash == null ? "" : loadedHash, channel);
         } catch (final ConfigurateException exception) {
             this.logger.warn("Failed to load channel from file '{}'", channelFile, exception);
         }
@@ -319,6 +366,15 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
         return null;
     }
 
+    private @Nullable String hash(final Path file) {
+        try {
+            return FileUtil.hashString(file);
+        } catch (final IOException | IllegalArgumentException exception) {
+            this.logger.warn("Failed to hash channel config '{}'", file, exception);
+            return null;
+        }
+    }
+
     private void sendMessageInChannelAsConsole(
         final Audience sender,
         final ChatChannel channel,
@@ -421,15 +477,22 @@ public class CarbonChannelRegistry extends ChatListenerInternal implements Chann
     }
 
     public void register(final ChatChannel channel, final boolean fireRegisterEvent) {
-        this.channelRegistry.register(channel.key(), channel);
-        if (channel.shouldRegisterCommands()) {
-            this.registerChannelCommands(channel);
+        // Don't let a registration land in a registry that a concurrent reload is about to replace
+        synchronized (this) {
+            this.register(this.channelRegistry, channel);
         }
         if (fireRegisterEvent) {
             this.eventHandler.emit(new ChannelRegisterEventImpl(this, Set.of(channel.key())));
         }
     }
 
+    private void register(final Registry<Key, ChatChannel> registry, final ChatChannel channel) {
+        registry.register(channel.key(), channel);
+        if (channel.shouldRegisterCommands()) {
+            this.registerChannelCommands(channel);
+        }
+    }
+
     @Override
     public @Nullable ChatChannel channel(final Key key) {
         final @Nullable Holder<Key, ChatChannel> holder = this.channelRegistry.getHolder(key);
@@ -111,6 +111,11 @@ public class ConfigChatChannel implements ChatChannel {
         because they're out of range from the radius.""")
     private boolean emptyRadiusRecipientsMessage = true;
 
+    @Comment("""
+        If true, messages in this channel are sent to other servers when messaging is enabled.
+        Channels with a radius are never sent to other servers.""")
+    private boolean crossServer = true;
+
     @Override
     public @Nullable String quickPrefix() {
         if (this.quickPrefix == null || this.quickPrefix.isBlank()) {
@@ -249,6 +254,11 @@ public class ConfigChatChannel implements ChatChannel {
         return this.emptyRadiusRecipientsMessage;
     }
 
+    @Override
+    public boolean crossServer() {
+        return this.crossServer && this.radius < 0;
+    }
+
     @Override
     public boolean equals(final Object other) {
         if (!(other instanceof ConfigChatChannel otherChannel)) {
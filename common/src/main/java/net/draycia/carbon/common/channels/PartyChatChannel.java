@@ -23,7 +23,6 @@ import com.google.inject.Inject;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.UUID;
 import net.draycia.carbon.api.channels.ChannelPermissionResult;
 import net.draycia.carbon.api.users.CarbonPlayer;
@@ -31,6 +30,8 @@ import net.draycia.carbon.api.users.Party;
 import net.draycia.carbon.common.channels.messages.ConfigChannelMessageSource;
 import net.draycia.carbon.common.messages.CarbonMessages;
 import net.draycia.carbon.common.messages.SourcedAudience;
+import net.draycia.carbon.common.users.PartyMembers;
+import net.draycia.carbon.common.users.UserManagerInternal;
 import net.draycia.carbon.common.users.WrappedCarbonPlayer;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.key.Key;
@@ -51,6 +52,8 @@ public class PartyChatChannel extends ConfigChatChannel {
     public static final String FILE_NAME = "partychat.conf";
 
     private transient @MonotonicNonNull @Inject CarbonMessages messages;
+    private transient @MonotonicNonNull @Inject PartyMembers partyMembers;
+    private transient @MonotonicNonNull @Inject UserManagerInternal<?> users;
 
     public PartyChatChannel() {
         this.key = Key.key("carbon", "partychat");
@@ -65,7 +68,7 @@ public class PartyChatChannel extends ConfigChatChannel {
     @Override
     public ChannelPermissionResult speechPermitted(final CarbonPlayer player) {
         return channelPermissionResult(
-            player.party().join() != null,
+            partyId(player) != null,
             () -> this.messages.cannotUsePartyChannel(player)
         );
     }
@@ -73,23 +76,29 @@ public class PartyChatChannel extends ConfigChatChannel {
     @Override
     public ChannelPermissionResult hearingPermitted(final CarbonPlayer player) {
         return channelPermissionResult(
-            player.party().join() != null,
+            partyId(player) != null,
             () -> this.messages.cannotUsePartyChannel(player)
         );
     }
 
     @Override
     public List<Audience> recipients(final CarbonPlayer sender) {
-        final WrappedCarbonPlayer wrapped = (WrappedCarbonPlayer) sender;
-        final @Nullable UUID party = wrapped.partyId();
+        final @Nullable UUID party = partyId(sender);
         if (party == null) {
             if (sender.online()) {
                 sender.sendMessage(this.messages.cannotUsePartyChannel(sender));
             }
             return new ArrayList<>();
         }
-        final List<Audience> recipients = super.recipients(sender);
-        recipients.removeIf(r -> r instanceof WrappedCarbonPlayer p && !Objects.equals(p.partyId(), party));
+        final List<Audience> recipients = new ArrayList<>();
+        for (final UUID member : this.partyMembers.onlineMembers(party)) {
+            // Online players are always loaded, this never waits
+            final @Nullable CarbonPlayer player = this.users.user(member).getNow(null);
+            if (player != null) {
+                recipients.add(player);
+            }
+        }
+        recipients.add(this.server.console());
         return recipients;
     }
 
@@ -100,7 +109,11 @@ public class PartyChatChannel extends ConfigChatChannel {
         final Component message,
         final Component originalMessage
     ) {
-        final @Nullable Party party = sender.party().join();
+        final @Nullable UUID partyId = partyId(sender);
+        @Nullable Party party = partyId == null ? null : this.partyMembers.party(partyId);
+        if (party == null && partyId != null) {
+            party = sender.party().getNow(null);
+        }
         return this.carbonMessages().chatFormat(
             SourcedAudience.of(sender, recipient),
             sender.uuid(),
@@ -111,4 +124,13 @@ public class PartyChatChannel extends ConfigChatChannel {
             party == null ? Component.text("null") : party.name()
         );
     }
+
+    // Platform players know their party id without loading the party, other implementations go through the API
+    private static @Nullable UUID partyId(final CarbonPlayer player) {
+        return player instanceof WrappedCarbonPlayer wrapped ? wrapped.partyId() : id(player.party().join());
+    }
+
+    private static @Nullable UUID id(final @Nullable Party party) {
+        return party == null ? null : party.id();
+    }
 }
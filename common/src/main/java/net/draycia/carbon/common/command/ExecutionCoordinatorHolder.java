@@ -22,33 +22,131 @@ package net.draycia.carbon.common.command;
 import cloud.commandframework.CommandTree;
 import cloud.commandframework.execution.AsynchronousCommandExecutionCoordinator;
 import cloud.commandframework.execution.CommandExecutionCoordinator;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 @DefaultQualifier(NonNull.class)
 public record ExecutionCoordinatorHolder(
     Function<CommandTree<Commander>, CommandExecutionCoordinator<Commander>> executionCoordinator,
-    ExecutorService executorService
+    ExecutorService executorService,
+    QueueWait queueWait
 ) {
 
+    // Used when virtual threads are unavailable, commands mostly wait on storage and profile lookups
+    private static final int PLATFORM_THREADS = 16;
+
     public void shutdown() {
         ConcurrentUtil.shutdownExecutor(this.executorService, TimeUnit.MILLISECONDS, 50);
     }
 
+    /**
+     * Creates the command execution coordinator.
+     *
+     * <p>Commands are parsed and executed off the calling thread, so resolving player arguments never blocks the
+     * server thread. On Java 21 and newer every command gets its own virtual thread, older versions use a bounded
+     * pool of platform threads.</p>
+     *
+     * @param logger logger
+     * @return execution coordinator holder
+     */
     public static ExecutionCoordinatorHolder create(final Logger logger) {
-        final ExecutorService executorService = Executors.newFixedThreadPool(4, ConcurrentUtil.carbonThreadFactory(logger, "Commands"));
+        @Nullable ExecutorService executorService = virtualThreadExecutor();
+        if (executorService == null) {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(PLATFORM_THREADS, PLATFORM_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), ConcurrentUtil.carbonThreadFactory(logger, "Commands"));
+            pool.allowCoreThreadTimeOut(true);
+            executorService = pool;
+        }
+        final QueueWait queueWait = new QueueWait();
         return new ExecutionCoordinatorHolder(
             AsynchronousCommandExecutionCoordinator.<Commander>builder()
-                .withExecutor(executorService)
+                .withExecutor(queueWait.wrap(executorService))
+                .withAsynchronousParsing()
                 .build(),
-            executorService
+            executorService,
+            queueWait
         );
     }
 
+    // Compiled against Java 17, so the Java 21 API is looked up reflectively
+    private static @Nullable ExecutorService virtualThreadExecutor() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "CarbonChat Commands Virtual Thread #", 0L);
+            final ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (final ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Measures how long commands wait for an executor thread.
+     */
+    public static final class QueueWait {
+
+        private final LongAdder commands = new LongAdder();
+        private final LongAdder waiting = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        private QueueWait() {
+        }
+
+        Executor wrap(final Executor executor) {
+            return task -> {
+                final long queued = System.nanoTime();
+                this.waiting.increment();
+                executor.execute(() -> {
+                    final long wait = System.nanoTime() - queued;
+                    this.waiting.decrement();
+                    this.commands.increment();
+                    this.totalWaitNanos.add(wait);
+                    this.maxWaitNanos.accumulate(wait);
+                    task.run();
+                });
+            };
+        }
+
+        public Stats stats() {
+            return new Stats(this.commands.sum(), this.waiting.sum(), this.totalWaitNanos.sum(), this.maxWaitNanos.get());
+        }
+
+        /**
+         * Command queue totals since startup.
+         *
+         * @param commands       commands that started running
+         * @param waiting        commands currently waiting for a thread
+         * @param totalWaitNanos time started commands spent waiting
+         * @param maxWaitNanos   longest wait of a single command
+         */
+        public record Stats(long commands, long waiting, long totalWaitNanos, long maxWaitNanos) {
+
+            public long averageWaitNanos() {
+                return this.commands == 0 ? 0 : this.totalWaitNanos / this.commands;
+            }
+
+        }
+
+    }
+
 }
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
+import net.draycia.carbon.api.CarbonServer;
 import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.api.users.UserManager;
 import net.draycia.carbon.common.command.Commander;
@@ -92,18 +93,21 @@ public final class CarbonPlayerArgument extends CommandArgument<Commander, Carbo
         private final UserManager<?> userManager;
         private final ProfileResolver profileResolver;
         private final CarbonMessages messages;
+        private final CarbonServer server;
 
         @Inject
         private Parser(
             final PlayerSuggestions suggestions,
             final UserManager<?> userManager,
             final ProfileResolver profileResolver,
-            final CarbonMessages messages
+            final CarbonMessages messages,
+            final CarbonServer server
         ) {
             this.suggestions = suggestions;
             this.userManager = userManager;
             this.profileResolver = profileResolver;
             this.messages = messages;
+            this.server = server;
         }
 
         @Override
@@ -113,12 +117,7 @@ public final class CarbonPlayerArgument extends CommandArgument<Commander, Carbo
         ) {
             final String input = inputQueue.peek();
 
-            final @Nullable CarbonPlayer join = this.profileResolver.resolveUUID(input, commandContext.isSuggestions()).thenCompose(uuid -> {
-                if (uuid == null) {
-                    return CompletableFuture.completedFuture(null);
-                }
-                return this.userManager.user(uuid);
-            }).join();
+            final @Nullable CarbonPlayer join = this.resolve(input, commandContext.isSuggestions());
 
             if (join == null) {
                 return ArgumentParseResult.failure(new ParseException(input, this.messages));
@@ -129,6 +128,22 @@ public final class CarbonPlayerArgument extends CommandArgument<Commander, Carbo
             return ArgumentParseResult.success(join);
         }
 
+        // Online players resolve without touching the profile cache or storage, cached profiles of loaded users complete immediately
+        private @Nullable CarbonPlayer resolve(final String input, final boolean cacheOnly) {
+            for (final CarbonPlayer player : this.server.players()) {
+                if (player.username().equalsIgnoreCase(input)) {
+                    return player;
+                }
+            }
+
+            return this.profileResolver.resolveUUID(input, cacheOnly).thenCompose(id -> {
+                if (id == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return this.userManager.user(id);
+            }).join();
+        }
+
         @Override
         public List<String> suggestions(
             final CommandContext<Commander> commandContext,
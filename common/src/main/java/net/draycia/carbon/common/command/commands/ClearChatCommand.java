@@ -22,13 +22,17 @@ package net.draycia.carbon.common.command.commands;
 import cloud.commandframework.CommandManager;
 import cloud.commandframework.minecraft.extras.MinecraftExtrasMetaKeys;
 import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import net.draycia.carbon.api.CarbonServer;
+import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.common.command.CarbonCommand;
 import net.draycia.carbon.common.command.CommandSettings;
 import net.draycia.carbon.common.command.Commander;
 import net.draycia.carbon.common.command.PlayerCommander;
 import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.messages.CarbonMessages;
+import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -72,15 +76,14 @@ public final class ClearChatCommand extends CarbonCommand {
             .senderType(PlayerCommander.class)
             .meta(MinecraftExtrasMetaKeys.DESCRIPTION, this.carbonMessages.commandClearChatDescription())
             .handler(handler -> {
-                // Not fond of having to send 50 messages to each player
-                // Are we not able to just paste in 50 newlines and call it a day?
-                for (int i = 0; i < this.configManager.primaryConfig().clearChatSettings().iterations(); i++) {
-                    for (final var player : this.server.players()) {
-                        if (!player.hasPermission("carbon.clearchat.exempt")) {
-                            player.sendMessage(this.configManager.primaryConfig().clearChatSettings().message());
-                        }
+                // One multi-line message per player instead of one message per line
+                final List<CarbonPlayer> recipients = new ArrayList<>();
+                for (final CarbonPlayer player : this.server.players()) {
+                    if (!player.hasPermission("carbon.clearchat.exempt")) {
+                        recipients.add(player);
                     }
                 }
+                Audience.audience(recipients).sendMessage(this.configManager.primaryConfig().clearChatSettings().clearComponent());
 
                 final Component senderName;
                 final String username;
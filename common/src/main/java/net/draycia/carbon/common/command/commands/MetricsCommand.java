@@ -0,0 +1,89 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.command.commands;
+
+import cloud.commandframework.CommandManager;
+import cloud.commandframework.minecraft.extras.MinecraftExtrasMetaKeys;
+import com.google.inject.Inject;
+import java.util.List;
+import net.draycia.carbon.common.command.CarbonCommand;
+import net.draycia.carbon.common.command.CommandSettings;
+import net.draycia.carbon.common.command.Commander;
+import net.draycia.carbon.common.messages.CarbonMessages;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
+import net.draycia.carbon.common.metrics.MetricsFormat;
+import net.kyori.adventure.key.Key;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+@DefaultQualifier(NonNull.class)
+public final class MetricsCommand extends CarbonCommand {
+
+    private final CommandManager<Commander> commandManager;
+    private final CarbonMessages carbonMessages;
+    private final CarbonMetrics metrics;
+
+    @Inject
+    public MetricsCommand(
+        final CommandManager<Commander> commandManager,
+        final CarbonMessages carbonMessages,
+        final CarbonMetrics metrics
+    ) {
+        this.commandManager = commandManager;
+        this.carbonMessages = carbonMessages;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CommandSettings defaultCommandSettings() {
+        return new CommandSettings("carbon");
+    }
+
+    @Override
+    public Key key() {
+        return Key.key("carbon", "metrics");
+    }
+
+    @Override
+    public void init() {
+        final var command = this.commandManager.commandBuilder(this.commandSettings().name(), this.commandSettings().aliases())
+            .literal("metrics")
+            .permission("carbon.metrics")
+            .senderType(Commander.class)
+            .meta(MinecraftExtrasMetaKeys.DESCRIPTION, this.carbonMessages.commandMetricsDescription())
+            .handler(handler -> {
+                final Commander sender = handler.getSender();
+                if (!this.metrics.enabled()) {
+                    this.carbonMessages.metricsDisabled(sender);
+                    return;
+                }
+
+                final List<MetricsFormat.Line> lines = MetricsFormat.summary(this.metrics);
+                this.carbonMessages.metricsHeader(sender, lines.size());
+                for (final MetricsFormat.Line line : lines) {
+                    this.carbonMessages.metricsLine(sender, line.metric(), line.value());
+                }
+            })
+            .build();
+
+        this.commandManager.command(command);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.command.commands;
+
+import cloud.commandframework.CommandManager;
+import cloud.commandframework.arguments.standard.EnumArgument;
+import cloud.commandframework.minecraft.extras.MinecraftExtrasMetaKeys;
+import cloud.commandframework.minecraft.extras.RichDescription;
+import com.google.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import net.draycia.carbon.common.command.CarbonCommand;
+import net.draycia.carbon.common.command.CommandSettings;
+import net.draycia.carbon.common.command.Commander;
+import net.draycia.carbon.common.config.PrimaryConfig;
+import net.draycia.carbon.common.messages.CarbonMessages;
+import net.draycia.carbon.common.users.StorageMigration;
+import net.kyori.adventure.key.Key;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+@DefaultQualifier(NonNull.class)
+public final class MigrateCommand extends CarbonCommand {
+
+    private final CommandManager<Commander> commandManager;
+    private final CarbonMessages carbonMessages;
+    private final StorageMigration migration;
+    private final Logger logger;
+
+    @Inject
+    public MigrateCommand(
+        final CommandManager<Commander> commandManager,
+        final CarbonMessages carbonMessages,
+        final StorageMigration migration,
+        final Logger logger
+    ) {
+        this.commandManager = commandManager;
+        this.carbonMessages = carbonMessages;
+        this.migration = migration;
+        this.logger = logger;
+    }
+
+    @Override
+    public CommandSettings defaultCommandSettings() {
+        return new CommandSettings("carbon");
+    }
+
+    @Override
+    public Key key() {
+        return Key.key("carbon", "migrate");
+    }
+
+    @Override
+    public void init() {
+        final var command = this.commandManager.commandBuilder(this.commandSettings().name(), this.commandSettings().aliases())
+            .literal("migrate")
+            .argument(EnumArgument.of(PrimaryConfig.StorageType.class, "from"),
+                RichDescription.of(this.carbonMessages.commandMigrateArgumentFrom()))
+            .argument(EnumArgument.of(PrimaryConfig.StorageType.class, "to"),
+                RichDescription.of(this.carbonMessages.commandMigrateArgumentTo()))
+            .permission("carbon.migrate")
+            .senderType(Commander.class)
+            .meta(MinecraftExtrasMetaKeys.DESCRIPTION, this.carbonMessages.commandMigrateDescription())
+            .handler(handler -> {
+                final Commander sender = handler.getSender();
+                final PrimaryConfig.StorageType from = handler.get("from");
+                final PrimaryConfig.StorageType to = handler.get("to");
+
+                if (from == to) {
+                    this.carbonMessages.migrationSameStorage(sender);
+                    return;
+                }
+                if (StorageMigration.sharesDatabaseSettings(from, to)) {
+                    this.carbonMessages.migrationSharedDatabase(sender, from.name(), to.name());
+                    return;
+                }
+
+                final @Nullable CompletableFuture<StorageMigration.Progress> future = this.migration.start(from, to, progress ->
+                    this.carbonMessages.migrationProgress(sender, progress.users(), progress.parties()));
+                if (future == null) {
+                    this.carbonMessages.migrationAlreadyRunning(sender);
+                    return;
+                }
+
+                this.carbonMessages.migrationStarted(sender, from.name(), to.name());
+                future.whenComplete((progress, thr) -> {
+                    if (thr != null) {
+                        this.logger.warn("Failed to migrate {} storage to {}", from, to, thr);
+                        this.carbonMessages.migrationFailed(sender);
+                        return;
+                    }
+                    this.carbonMessages.migrationComplete(sender, progress.users(), progress.parties());
+                });
+            })
+            .build();
+
+        this.commandManager.command(command);
+    }
+
+}
@@ -226,7 +226,7 @@ public final class WhisperCommand extends CarbonCommand {
             if (localRecipient) {
                 recipient.whisperReplyTarget(sender.uuid());
             } else {
-                this.messaging.get().queuePacket(() -> this.packetFactory.whisperPacket(sender.uuid(), recipient.uuid(), privateChatEvent.message()));
+                this.messaging.get().queuePacketFor(recipient.uuid(), () -> this.packetFactory.whisperPacket(sender.uuid(), recipient.uuid(), privateChatEvent.message()));
             }
         }
 
@@ -19,7 +19,9 @@
  */
 package net.draycia.carbon.common.config;
 
+import java.util.Collections;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.minimessage.tag.Tag;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
@@ -37,13 +39,14 @@ public class ClearChatSettings {
     @Comment("The message that will be sent to each player.")
     private String message = "";
 
-    @Comment("The number of times the message will be sent to each player.")
+    @Comment("The number of times the message is repeated, each on its own line.")
     private int iterations = 50;
 
     @Comment("The message to be sent after chat is cleared.")
     private String broadcast = "<gold>Chat has been cleared by </gold><green><display_name><green><gold>.";
 
     private @MonotonicNonNull Component messageComponent = null;
+    private @MonotonicNonNull Component clearComponent = null;
 
     public Component message() {
         if (this.messageComponent == null) {
@@ -57,6 +60,19 @@ public class ClearChatSettings {
         return this.iterations;
     }
 
+    /**
+     * Gets the message repeated {@link #iterations()} times on separate lines, so chat is cleared with one send.
+     *
+     * @return clear payload
+     */
+    public Component clearComponent() {
+        if (this.clearComponent == null) {
+            this.clearComponent = Component.join(JoinConfiguration.newlines(), Collections.nCopies(Math.max(0, this.iterations), this.message()));
+        }
+
+        return this.clearComponent;
+    }
+
     public Component broadcast(final Component displayName, final String username) {
         return MiniMessage.miniMessage().deserialize(this.broadcast,
             TagResolver.builder()
@@ -24,6 +24,7 @@ import com.google.inject.Singleton;
 import io.leangen.geantyref.GenericTypeReflector;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
 import java.util.Map;
@@ -67,6 +68,7 @@ public final class ConfigManager {
     private final Set<Integration.ConfigMeta> integrations;
 
     private volatile @MonotonicNonNull PrimaryConfig primaryConfig = null;
+    private volatile @Nullable String primaryConfigHash = null;
 
     @Inject
     private ConfigManager(
@@ -97,10 +99,16 @@ public final class ConfigManager {
     }
 
     public void reloadPrimaryConfig() {
+        final @Nullable String hash = this.hash(PRIMARY_CONFIG_FILE_NAME);
+        if (hash != null && hash.equals(this.primaryConfigHash)) {
+            this.logger.info("Configuration is unchanged, skipping reload");
+            return;
+        }
         this.logger.info("Reloading configuration....");
         final @Nullable PrimaryConfig load = this.load(PrimaryConfig.class, PRIMARY_CONFIG_FILE_NAME);
         if (load != null) {
             this.primaryConfig = load;
+            this.primaryConfigHash = this.hash(PRIMARY_CONFIG_FILE_NAME);
         } else {
             this.logger.error("Failed to reload primary config, see above for further details");
         }
@@ -116,6 +124,7 @@ public final class ConfigManager {
                         throw new RuntimeException("Failed to initialize primary config, see above for further details");
                     }
                     this.primaryConfig = load;
+                    this.primaryConfigHash = this.hash(PRIMARY_CONFIG_FILE_NAME);
                 }
             }
         }
@@ -123,6 +132,19 @@ public final class ConfigManager {
         return this.primaryConfig;
     }
 
+    private @Nullable String hash(final String fileName) {
+        final Path file = this.dataDirectory.resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return FileUtil.hashString(file);
+        } catch (final IOException ex) {
+            this.logger.warn("Failed to hash '{}'", file, ex);
+            return null;
+        }
+    }
+
     public Map<Key, CommandSettings> loadCommandSettings() {
         final @Nullable CommandConfig load = this.load(CommandConfig.class, COMMAND_SETTINGS_FILE_NAME);
         if (load == null) {
@@ -173,6 +195,7 @@ public final class ConfigManager {
 
         try {
             final var node = loader.load();
+            final ConfigurationNode original = node.copy();
             try {
                 clazz.getDeclaredMethod("upgrade", ConfigurationNode.class).invoke(null, node);
             } catch (final NoSuchMethodException ignore) {
@@ -182,7 +205,7 @@ public final class ConfigManager {
                 throw new ConfigurateException(node, "Failed to deserialize " + clazz.getName() + " from node");
             }
             node.set(clazz, config);
-            loader.save(node);
+            saveIfChanged(loader, original, node);
             return config;
         } catch (final ConfigurateException | ReflectiveOperationException exception) {
             this.logger.error("Failed to load config '{}'", file, exception);
@@ -190,6 +213,28 @@ public final class ConfigManager {
         }
     }
 
+    /**
+     * Saves {@code node} unless it is still equal to {@code original}, the node as it was loaded. Loading a config
+     * then only rewrites the file when defaults were added or the schema was upgraded.
+     *
+     * @param loader   loader the node was loaded with
+     * @param original copy of the node taken right after loading
+     * @param node     node after deserializing and serializing the config
+     * @return whether the file was written
+     * @throws ConfigurateException when saving fails
+     */
+    public static boolean saveIfChanged(
+        final ConfigurationLoader<?> loader,
+        final ConfigurationNode original,
+        final ConfigurationNode node
+    ) throws ConfigurateException {
+        if (node.equals(original)) {
+            return false;
+        }
+        loader.save(node);
+        return true;
+    }
+
     public static <N extends ConfigurationNode> void configVersionComment(
         final N rootNode,
         final ConfigurationTransformation.Versioned versionedTransformation
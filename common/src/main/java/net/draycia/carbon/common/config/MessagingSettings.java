@@ -33,7 +33,7 @@ public class MessagingSettings {
     @Comment("Whether cross-server messaging is enabled")
     private boolean enabled = false;
 
-    @Comment("One of: RABBITMQ, NATS, REDIS")
+    @Comment("One of: RABBITMQ, NATS, REDIS, LOCAL (in-process, for testing several servers in one JVM)")
     private MessagingManager.@NonNull BrokerType brokerType = MessagingManager.BrokerType.NONE;
 
     private String url = "127.0.0.1";
@@ -52,6 +52,31 @@ public class MessagingSettings {
     @Comment("RabbitMQ and Redis password")
     private String password = "password"; // RabbitMQ and Redis only
 
+    @Comment("LOCAL delivery delay in milliseconds")
+    private int localLatencyMillis = 0; // LOCAL only
+
+    @Comment("LOCAL share of packets to drop, between 0 and 1")
+    private double localLossRate = 0; // LOCAL only
+
+    @Comment("""
+        Whether to send packets in the format used by older versions of Carbon,
+        with chat components as JSON, without compression and without roster versions.
+        Enable this on every server while servers running older versions of Carbon are connected to the same broker.""")
+    private boolean legacyPacketFormat = false;
+
+    @Comment("""
+        Packet bodies of at least this many bytes are compressed with zstd before being sent.
+        Set to -1 to disable compression. Has no effect when legacy-packet-format is enabled.""")
+    private int compressionThreshold = 128;
+
+    @Comment("""
+        The longest a queued packet may wait before it is sent, in milliseconds.
+        Packets queued within this window are sent to the broker together.""")
+    private int flushLatencyMillis = 5;
+
+    @Comment("Queued packets are sent right away once this many are waiting.")
+    private int flushMaxPackets = 64;
+
     public boolean enabled() {
         return this.enabled;
     }
@@ -84,4 +109,28 @@ public class MessagingSettings {
         return this.password;
     }
 
+    public int localLatencyMillis() {
+        return this.localLatencyMillis;
+    }
+
+    public double localLossRate() {
+        return this.localLossRate;
+    }
+
+    public boolean legacyPacketFormat() {
+        return this.legacyPacketFormat;
+    }
+
+    public int compressionThreshold() {
+        return this.compressionThreshold;
+    }
+
+    public int flushLatencyMillis() {
+        return this.flushLatencyMillis;
+    }
+
+    public int flushMaxPackets() {
+        return this.flushMaxPackets;
+    }
+
 }
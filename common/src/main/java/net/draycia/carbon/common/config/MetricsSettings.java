@@ -0,0 +1,70 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.config;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+import org.spongepowered.configurate.objectmapping.meta.Comment;
+
+@DefaultQualifier(MonotonicNonNull.class)
+@ConfigSerializable
+public class MetricsSettings {
+
+    @Comment("""
+        Whether to collect runtime metrics like chat rates, render, storage and messaging latencies.
+        View them with /carbon metrics. Changes to this section require a restart.""")
+    private boolean enabled = false;
+
+    @Comment("Port to serve metrics on in the Prometheus text format, at /metrics. Set to -1 to disable.")
+    private int prometheusPort = -1;
+
+    @Comment("Address the Prometheus endpoint listens on. Keep it local unless the port is firewalled.")
+    private String prometheusBindAddress = "127.0.0.1";
+
+    @Comment("""
+        File in the plugin folder to write metrics to in the Prometheus text format, for example for
+        node_exporter's textfile collector. Leave empty to disable.""")
+    private String prometheusFile = "";
+
+    @Comment("How often to rewrite prometheus-file, in seconds.")
+    private int prometheusFileIntervalSeconds = 15;
+
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    public int prometheusPort() {
+        return this.prometheusPort;
+    }
+
+    public String prometheusBindAddress() {
+        return this.prometheusBindAddress;
+    }
+
+    public String prometheusFile() {
+        return this.prometheusFile;
+    }
+
+    public int prometheusFileIntervalSeconds() {
+        return this.prometheusFileIntervalSeconds;
+    }
+
+}
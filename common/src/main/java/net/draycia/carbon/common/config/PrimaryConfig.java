@@ -49,7 +49,8 @@ public class PrimaryConfig {
 
     @Comment("""
         The service that will be used to store and load player information.
-        One of: JSON, H2, MYSQL, PSQL
+        One of: JSON, H2, MYSQL, PSQL, MVSTORE
+        MVSTORE is an embedded binary key-value store, the fastest option for a single server without a shared database.
         Note: If you choose MYSQL or PSQL make sure you configure the "database-settings" section of this file!""")
     private StorageType storageType = StorageType.JSON;
 
@@ -58,6 +59,9 @@ public class PrimaryConfig {
         If JSON or H2 storage is used, this section can be ignored.""")
     private DatabaseSettings databaseSettings = new DatabaseSettings();
 
+    @Comment("When \"storage-type\" is set to JSON, this section configures how user files are stored.")
+    private JsonStorageSettings jsonStorageSettings = new JsonStorageSettings();
+
     @Comment("Settings for cross-server messaging")
     private MessagingSettings messagingSettings = new MessagingSettings();
 
@@ -96,9 +100,18 @@ public class PrimaryConfig {
     @Comment("Settings for the clear chat command")
     private ClearChatSettings clearChatSettings = new ClearChatSettings();
 
+    @Comment("Settings for PlaceholderAPI placeholders. Only applies on Paper when PlaceholderAPI is installed.")
+    private PlaceholderApiSettings placeholderApi = new PlaceholderApiSettings();
+
+    @Comment("Settings for looking up player names and UUIDs from Mojang.")
+    private ProfileResolverSettings profileResolver = new ProfileResolverSettings();
+
     @Comment("Settings for integrations with other plugins/mods. Settings only apply when the relevant plugin/mod is present.")
     private IntegrationConfigContainer integrations;
 
+    @Comment("Settings for runtime metrics.")
+    private MetricsSettings metrics = new MetricsSettings();
+
     @Comment("Whether Carbon should check for updates using the GitHub API on startup.")
     private boolean updateChecker = true;
 
@@ -122,6 +135,10 @@ public class PrimaryConfig {
         return this.databaseSettings;
     }
 
+    public JsonStorageSettings jsonStorageSettings() {
+        return this.jsonStorageSettings;
+    }
+
     public MessagingSettings messagingSettings() {
         return this.messagingSettings;
     }
@@ -174,10 +191,22 @@ public class PrimaryConfig {
         return this.clearChatSettings;
     }
 
+    public PlaceholderApiSettings placeholderApi() {
+        return this.placeholderApi;
+    }
+
+    public ProfileResolverSettings profileResolver() {
+        return this.profileResolver;
+    }
+
     public IntegrationConfigContainer integrations() {
         return this.integrations;
     }
 
+    public MetricsSettings metrics() {
+        return this.metrics;
+    }
+
     public boolean updateChecker() {
         return this.updateChecker;
     }
@@ -245,11 +274,44 @@ public class PrimaryConfig {
         public int expireInvitesAfterSeconds = 45;
     }
 
+    @ConfigSerializable
+    public static final class JsonStorageSettings {
+
+        @Comment("""
+            Whether to store users in the compact format: minified JSON written with streaming serializers,
+            spread over hashed subdirectories (users/ab/cd/<uuid>.json). Recommended for servers with many players.
+            Existing files are migrated to the selected layout the first time each user is loaded.""")
+        public boolean compact = false;
+    }
+
+    @ConfigSerializable
+    public static final class PlaceholderApiSettings {
+
+        @Comment("""
+            How long (in milliseconds) resolved non-relational placeholders are reused for the same player.
+            Useful for high-rate channels with placeholders that query databases or economy plugins.
+            Placeholders are always resolved once per message regardless of this setting, 0 disables the cache.""")
+        public long playerCacheMillis = 0;
+    }
+
+    @ConfigSerializable
+    public static final class ProfileResolverSettings {
+
+        @Comment("""
+            Base URL of the Mojang API. Only change this to point Carbon at a mirror, or at a stub server
+            for testing.""")
+        public String apiUrl = "https://api.mojang.com";
+
+        @Comment("How long (in milliseconds) to wait for more name lookups to bundle into one request, up to 10 names.")
+        public long batchWindowMillis = 50;
+    }
+
     public enum StorageType {
         JSON,
         MYSQL,
         PSQL,
-        H2
+        H2,
+        MVSTORE
     }
 
 }
@@ -25,12 +25,15 @@ import java.util.List;
 import net.draycia.carbon.api.channels.ChatChannel;
 import net.draycia.carbon.api.event.CarbonEventHandler;
 import net.draycia.carbon.api.users.CarbonPlayer;
+import net.draycia.carbon.api.util.ChatComponentRenderer;
 import net.draycia.carbon.api.util.KeyedRenderer;
 import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.event.events.CarbonChatEventImpl;
 import net.draycia.carbon.common.event.events.CarbonEarlyChatEvent;
 import net.draycia.carbon.common.messages.CarbonMessages;
 import net.draycia.carbon.common.messages.TagPermissions;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
+import net.draycia.carbon.common.metrics.Histogram;
 import net.draycia.carbon.common.users.WrappedCarbonPlayer;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.chat.SignedMessage;
@@ -49,15 +52,24 @@ public abstract class ChatListenerInternal {
     private final ConfigManager configManager;
     private final CarbonMessages carbonMessages;
     private final CarbonEventHandler carbonEventHandler;
+    private final CarbonMetrics metrics;
+    private final Histogram prepareTime;
+    private final Histogram renderTime;
 
     protected ChatListenerInternal(
         final CarbonEventHandler carbonEventHandler,
         final CarbonMessages carbonMessages,
-        final ConfigManager configManager
+        final ConfigManager configManager,
+        final CarbonMetrics metrics
     ) {
         this.configManager = configManager;
         this.carbonMessages = carbonMessages;
         this.carbonEventHandler = carbonEventHandler;
+        this.metrics = metrics;
+        this.prepareTime = metrics.histogram("carbon_chat_prepare_seconds",
+            "Time from receiving a chat message to the chat event being handled", Histogram.Unit.NANOSECONDS);
+        this.renderTime = metrics.histogram("carbon_chat_render_seconds",
+            "Time spent rendering a chat message in its channel's format for one recipient", Histogram.Unit.NANOSECONDS);
     }
 
     protected @Nullable CarbonChatEventImpl prepareAndEmitChatEvent(final CarbonPlayer sender, final String messageContent, final @Nullable SignedMessage signedMessage) {
@@ -69,6 +81,7 @@ public abstract class ChatListenerInternal {
     }
 
     protected @Nullable CarbonChatEventImpl prepareAndEmitChatEvent(final CarbonPlayer sender, final String messageContent, final @Nullable SignedMessage signedMessage, final ChatChannel channel) {
+        final long start = System.nanoTime();
         String content = this.configManager.primaryConfig().applyChatPlaceholders(messageContent);
         content = this.configManager.primaryConfig().applyChatFilters(content);
 
@@ -94,7 +107,7 @@ public abstract class ChatListenerInternal {
         }
 
         final List<KeyedRenderer> renderers = new ArrayList<>();
-        renderers.add(KeyedRenderer.keyedRenderer(Key.key("carbon", "default"), channel));
+        renderers.add(KeyedRenderer.keyedRenderer(Key.key("carbon", "default"), this.metrics.enabled() ? this.timed(channel) : channel));
 
         final List<Audience> recipients = channel.recipients(sender);
 
@@ -102,9 +115,25 @@ public abstract class ChatListenerInternal {
 
         this.carbonEventHandler.emit(chatEvent);
 
+        if (this.metrics.enabled()) {
+            this.metrics.counter("carbon_chat_messages_total", "Chat messages sent per channel", "channel", channel.key().asString()).increment();
+            this.prepareTime.recordSince(start);
+        }
+
         return chatEvent;
     }
 
+    private ChatComponentRenderer timed(final ChatComponentRenderer renderer) {
+        return (sender, recipient, message, originalMessage) -> {
+            final long start = System.nanoTime();
+            try {
+                return renderer.render(sender, recipient, message, originalMessage);
+            } finally {
+                this.renderTime.recordSince(start);
+            }
+        };
+    }
+
     private static boolean probablyBlank(final Component component) {
         final Iterator<Component> it = component.iterator(ComponentIteratorType.DEPTH_FIRST);
         while (it.hasNext()) {
@@ -20,9 +20,12 @@
 package net.draycia.carbon.common.listeners;
 
 import com.google.inject.Inject;
+import java.util.Set;
+import java.util.UUID;
 import net.draycia.carbon.api.event.CarbonEventHandler;
 import net.draycia.carbon.api.event.events.CarbonChatEvent;
 import net.draycia.carbon.api.users.CarbonPlayer;
+import net.draycia.carbon.common.users.IgnoreIndex;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
@@ -30,10 +33,14 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 public class IgnoreHandler implements Listener {
 
     @Inject
-    public IgnoreHandler(final CarbonEventHandler events) {
+    public IgnoreHandler(final CarbonEventHandler events, final IgnoreIndex ignoreIndex) {
         events.subscribe(CarbonChatEvent.class, 0, false, event -> {
+            final Set<UUID> ignoredBy = ignoreIndex.ignoredBy(event.sender().uuid());
+            if (ignoredBy.isEmpty()) {
+                return;
+            }
             event.recipients().removeIf(entry -> entry instanceof CarbonPlayer carbonPlayer &&
-                carbonPlayer.ignoring(event.sender()));
+                ignoredBy.contains(carbonPlayer.uuid()));
         });
     }
 
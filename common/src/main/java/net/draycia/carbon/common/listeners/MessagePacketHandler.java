@@ -26,9 +26,11 @@ import net.draycia.carbon.api.event.CarbonEventHandler;
 import net.draycia.carbon.api.event.events.CarbonChatEvent;
 import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.common.event.events.CarbonChatEventImpl;
+import net.draycia.carbon.common.messaging.ChannelInterest;
 import net.draycia.carbon.common.messaging.MessagingManager;
 import net.draycia.carbon.common.messaging.ServerId;
 import net.draycia.carbon.common.messaging.packets.ChatMessagePacket;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
 import net.draycia.carbon.common.users.ConsoleCarbonPlayer;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -41,7 +43,8 @@ public class MessagePacketHandler implements Listener {
     public MessagePacketHandler(
         final CarbonEventHandler events,
         final @ServerId UUID serverId,
-        final Provider<MessagingManager> messaging
+        final Provider<MessagingManager> messaging,
+        final ChannelInterest channelInterest
     ) {
         events.subscribe(CarbonChatEvent.class, 100, false, event -> {
             if (!(event instanceof CarbonChatEventImpl e) || !e.origin) {
@@ -50,13 +53,16 @@ public class MessagePacketHandler implements Listener {
             if (event.sender() instanceof ConsoleCarbonPlayer) {
                 return;
             }
+            if (!channelInterest.publish(event.chatChannel())) {
+                return;
+            }
 
             messaging.get().queuePacket(() -> {
                 final CarbonPlayer sender = event.sender();
                 final Component networkMessage = e.renderFor(sender);
 
-                return new ChatMessagePacket(serverId, sender.uuid(),
-                    event.chatChannel().permission(), event.chatChannel().key(), sender.username(), networkMessage);
+                return new ChatMessagePacket(serverId, SenderSnapshot.of(sender),
+                    event.chatChannel().permission(), event.chatChannel().key(), networkMessage);
             });
         });
     }
@@ -26,36 +26,40 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Writer;
-import java.net.MalformedURLException;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import net.draycia.carbon.api.event.CarbonEventHandler;
 import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.common.DataDirectory;
 import net.draycia.carbon.common.command.PlayerCommander;
 import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.event.events.CarbonReloadEvent;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
+import net.draycia.carbon.common.metrics.Counter;
+import net.draycia.carbon.common.metrics.Histogram;
+import net.draycia.carbon.common.util.FileUtil;
 import net.kyori.adventure.audience.Audience;
-import net.kyori.adventure.translation.Translator;
 import net.kyori.moonshine.message.IMessageSource;
 import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
@@ -65,21 +69,27 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 public final class CarbonMessageSource implements IMessageSource<Audience, String> {
 
     private final Locale defaultLocale;
-    private volatile Map<Locale, Properties> locales = Map.of();
-    private final Path pluginJar;
+    private volatile @MonotonicNonNull LocaleTable locales;
     private final Logger logger;
-    private final Path dataDirectory;
+    private final Path localeDirectory;
+    private final Counter lookups;
+    private final Counter missingKeys;
+    private final Histogram loadTime;
 
     @Inject
     private CarbonMessageSource(
         final CarbonEventHandler events,
         final @DataDirectory Path dataDirectory,
         final ConfigManager configManager,
-        final Logger logger
+        final Logger logger,
+        final CarbonMetrics metrics
     ) throws IOException {
-        this.dataDirectory = dataDirectory;
-        this.pluginJar = pluginJar();
+        this.localeDirectory = dataDirectory.resolve("locale");
         this.logger = logger;
+        this.lookups = metrics.counter("carbon_locale_lookups_total", "Message lookups in the locale files");
+        this.missingKeys = metrics.counter("carbon_locale_missing_keys_total", "Message lookups that found no translation in any locale");
+        this.loadTime = metrics.histogram("carbon_locale_load_seconds", "Time to load a locale on first use", Histogram.Unit.NANOSECONDS);
+        metrics.gauge("carbon_locales_loaded", "Locales loaded since the last reload", () -> this.locales.loadedCount());
 
         this.defaultLocale = configManager.primaryConfig().defaultLocale();
 
@@ -90,82 +100,68 @@ public final class CarbonMessageSource implements IMessageSource<Audience, Strin
         });
     }
 
-    private static @NonNull Path pluginJar() {
-        try {
-            URL sourceUrl = CarbonMessageSource.class.getProtectionDomain().getCodeSource().getLocation();
-            // Some class loaders give the full url to the class, some give the URL to its jar.
-            // We want the containing jar, so we will unwrap jar-schema code sources.
-            if (sourceUrl.getProtocol().equals("jar")) {
-                final int exclamationIdx = sourceUrl.getPath().lastIndexOf('!');
-                if (exclamationIdx != -1) {
-                    sourceUrl = new URL(sourceUrl.getPath().substring(0, exclamationIdx));
-                }
-            }
-            return Paths.get(sourceUrl.toURI());
-        } catch (final URISyntaxException | MalformedURLException ex) {
-            throw new RuntimeException("Could not locate plugin jar", ex);
-        }
-    }
-
+    // Only the default locale is loaded up front, other locales are loaded the first time a message is looked up in them
     private void reloadTranslations() throws IOException {
-        final Map<Locale, Properties> map = new HashMap<>();
-
-        final Path localeDirectory = this.dataDirectory.resolve("locale");
-
         // Create locale directory
-        if (!Files.exists(localeDirectory)) {
-            Files.createDirectories(localeDirectory);
+        if (!Files.exists(this.localeDirectory)) {
+            Files.createDirectories(this.localeDirectory);
         }
 
-        this.walkPluginJar(stream -> stream.filter(Files::isRegularFile)
-            .filter(it -> {
-                final String pathString = it.toString();
-                return pathString.startsWith("/locale/messages-")
-                    && pathString.endsWith(".properties");
-            })
-            .forEach(localeFile -> {
-                final String localeString = localeString(localeFile);
-                final @Nullable Locale locale = parseLocale(localeString);
-
-                if (locale == null) {
-                    this.logger.warn("Unknown locale '{}'?", localeString);
-                    return;
-                }
-
-                this.tryLoadLocale(map, localeDirectory, localeFile, locale);
-            }));
-
-        try (final Stream<Path> paths = Files.list(localeDirectory)) {
-            paths.filter(Files::isRegularFile).forEach(localeFile -> {
-                final String localeString = localeString(localeFile);
-                final @Nullable Locale locale = parseLocale(localeString);
+        // Listed once so checking for a locale file doesn't touch the disk
+        final Set<String> userFiles = FileUtil.listDirectoryEntries(this.localeDirectory, "messages-*.properties").stream()
+            .map(path -> path.getFileName().toString())
+            .collect(Collectors.toUnmodifiableSet());
+        final LocaleTable table = new LocaleTable(this::loadLocale, locale -> hasLocaleFile(locale, userFiles), this.defaultLocale);
+        table.chain(this.defaultLocale);
+        this.locales = table;
+        this.logger.info("Loaded default locale {}, other locales are loaded when first used", this.defaultLocale);
+    }
 
-                if (locale == null) {
-                    this.logger.warn("Unknown locale '{}'?", localeString);
-                    return;
+    private @Nullable Map<String, String> loadLocale(final Locale locale) {
+        final long start = System.nanoTime();
+        try {
+            for (final String localeString : localeStrings(locale)) {
+                final String fileName = "messages-" + localeString + ".properties";
+                final Path userFile = this.localeDirectory.resolve(fileName);
+                final @Nullable URL bundled = CarbonMessageSource.class.getResource("/locale/" + fileName);
+                if (bundled == null && !Files.isRegularFile(userFile)) {
+                    continue;
                 }
 
-                if (map.containsKey(locale)) {
-                    return;
+                final @Nullable Properties properties = this.readLocale(userFile, bundled, locale);
+                if (properties == null) {
+                    return null;
                 }
-
-                this.tryLoadLocale(map, localeDirectory, localeFile, locale);
-            });
+                this.logger.info("Loaded locale {} ({})", locale.getDisplayName(), locale);
+                return freeze(properties);
+            }
+            return null;
+        } finally {
+            this.loadTime.recordSince(start);
         }
+    }
 
-        this.logger.info("Loaded {} locales: [{}]", map.size(), map.keySet().stream().map(Locale::toString).collect(Collectors.joining(", ")));
-        this.locales = Map.copyOf(map);
+    private static boolean hasLocaleFile(final Locale locale, final Set<String> userFiles) {
+        for (final String localeString : localeStrings(locale)) {
+            final String fileName = "messages-" + localeString + ".properties";
+            if (userFiles.contains(fileName) || CarbonMessageSource.class.getResource("/locale/" + fileName) != null) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void tryLoadLocale(final Map<Locale, Properties> map, final Path localeDirectory, final Path localeFile, final Locale locale) {
-        final @Nullable Properties properties = this.readLocale(localeDirectory, localeFile, locale);
-        if (properties != null) {
-            map.put(locale, properties);
+    // Properties is a synchronized Hashtable, copy into an immutable map so lookups don't take a monitor
+    private static Map<String, String> freeze(final Properties properties) {
+        final Map<String, String> messages = new HashMap<>();
+        for (final String key : properties.stringPropertyNames()) {
+            messages.put(key, fixCrowdin(properties.getProperty(key)));
         }
+        return Map.copyOf(messages);
     }
 
-    private @Nullable Properties readLocale(final Path localeDirectory, final Path localeFile, final Locale locale) {
-        this.logger.debug("Found locale {} ({}) in: {}", locale.getDisplayName(), locale, localeFile);
+    private @Nullable Properties readLocale(final Path userFile, final @Nullable URL bundled, final Locale locale) {
+        this.logger.debug("Found locale {} ({}) in: {}", locale.getDisplayName(), locale, bundled == null ? userFile : bundled);
 
         final Properties properties = new Properties() {
             @Override
@@ -179,12 +175,12 @@ public final class CarbonMessageSource implements IMessageSource<Audience, Strin
         };
 
         try {
-            this.loadProperties(properties, localeDirectory, localeFile);
+            this.loadProperties(properties, userFile, bundled);
 
             this.logger.debug("Successfully loaded locale {} ({})", locale.getDisplayName(), locale);
             return properties;
         } catch (final IOException ex) {
-            this.logger.warn("Unable to load locale {} ({}) from source: {}", locale.getDisplayName(), locale, localeFile, ex);
+            this.logger.warn("Unable to load locale {} ({}) from source: {}", locale.getDisplayName(), locale, userFile, ex);
             return null;
         }
     }
@@ -211,78 +207,51 @@ public final class CarbonMessageSource implements IMessageSource<Audience, Strin
 
     private String forPlayer(final String key, final CarbonPlayer player) {
         final @Nullable Locale locale = player.locale();
-        if (locale != null) {
-            final var properties = this.locales.get(locale);
-
-            if (properties != null) {
-                final var message = properties.getProperty(key);
-
-                if (message != null) {
-                    return fixCrowdin(message);
-                }
-            }
-        }
-
-        return this.fromDefaultLocale(key);
+        return this.lookup(key, locale == null ? this.defaultLocale : locale);
     }
 
     private String fromDefaultLocale(final String key) {
-        final Properties defaultProperties = this.locales.get(this.defaultLocale);
+        return this.lookup(key, this.defaultLocale);
+    }
 
-        if (defaultProperties != null) {
-            final String value = defaultProperties.getProperty(key);
+    private String lookup(final String key, final Locale locale) {
+        this.lookups.increment();
+        final LocaleTable table = this.locales;
+        final List<Map<String, String>> chain = table.chain(locale);
 
-            if (value == null) {
-                this.logger.warn("No message mapping for key " + key + " in default locale " + this.defaultLocale.getDisplayName());
-                return key;
+        for (int i = 0; i < chain.size(); i++) {
+            final @Nullable String message = chain.get(i).get(key);
+            if (message != null) {
+                return message;
             }
+        }
 
-            return fixCrowdin(value);
+        this.missingKeys.increment();
+        if (table.loaded(this.defaultLocale)) {
+            this.logger.warn("No message mapping for key " + key + " in default locale " + this.defaultLocale.getDisplayName());
         }
 
         return key;
     }
 
-    private void walkPluginJar(final Consumer<Stream<Path>> user) throws IOException {
-        if (Files.isDirectory(this.pluginJar)) {
-            try (final var stream = Files.walk(this.pluginJar)) {
-                user.accept(stream.map(path -> path.relativize(this.pluginJar)));
-            }
-            return;
-        }
-        try (final FileSystem jar = FileSystems.newFileSystem(this.pluginJar, this.getClass().getClassLoader())) {
-            final Path root = jar.getRootDirectories()
-                .iterator()
-                .next();
-            try (final var stream = Files.walk(root)) {
-                user.accept(stream);
-            }
-        }
-    }
-
     private void loadProperties(
         final Properties properties,
-        final Path localeDirectory,
-        final Path sourceFile
+        final Path userFile,
+        final @Nullable URL bundled
     ) throws IOException {
-        final Path userFile = localeDirectory.resolve(sourceFile.getFileName().toString());
-        final boolean samePath = sourceFile.normalize().toAbsolutePath().equals(userFile.normalize().toAbsolutePath());
-
         if (Files.isRegularFile(userFile)) {
             // If the file in the localeDirectory exists, read it to the properties
             final InputStream inputStream = Files.newInputStream(userFile);
             try (final Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
                 properties.load(reader);
             }
-        } else if (samePath && !Files.isRegularFile(userFile)) {
-            throw new IllegalStateException("sourceFile == userFile, and is not a regular file (%s)".formatted(userFile));
         }
 
         boolean write = false;
 
         // Read the file in the jar and add missing entries
-        if (Files.isRegularFile(sourceFile) && !samePath) {
-            try (final Reader reader = new InputStreamReader(Files.newInputStream(sourceFile), StandardCharsets.UTF_8)) {
+        if (bundled != null) {
+            try (final Reader reader = new InputStreamReader(bundled.openStream(), StandardCharsets.UTF_8)) {
                 final Properties packaged = new Properties();
                 packaged.load(reader);
 
@@ -302,15 +271,13 @@ public final class CarbonMessageSource implements IMessageSource<Audience, Strin
         }
     }
 
-    private static String localeString(final Path localeFile) {
-        return localeFile.getFileName().toString().substring("messages-".length()).replace(".properties", "");
-    }
-
-    private static @Nullable Locale parseLocale(String localeString) {
-        // MC uses no_NO when the player selects nb_NO...
-        localeString = localeString.replace("nb_NO", "no_NO");
-
-        return Translator.parseLocale(localeString);
+    // File name suffixes that may hold the locale, MC uses no_NO when the player selects nb_NO...
+    private static List<String> localeStrings(final Locale locale) {
+        final String localeString = locale.toString();
+        if (localeString.equals("no_NO")) {
+            return List.of(localeString, "nb_NO");
+        }
+        return List.of(localeString);
     }
 
     // Crowdin exports single quotes as double quotes
@@ -318,4 +285,100 @@ public final class CarbonMessageSource implements IMessageSource<Audience, Strin
         return s.replace("''", "'");
     }
 
+    private static final class LocaleTable {
+
+        private final Function<Locale, @Nullable Map<String, String>> loader;
+        private final Predicate<Locale> hasLocaleFile;
+        private final Locale defaultLocale;
+        private final Map<Locale, CompletableFuture<Optional<Map<String, String>>>> locales = new ConcurrentHashMap<>();
+        private final Map<Locale, List<Map<String, String>>> chains = new ConcurrentHashMap<>();
+
+        LocaleTable(
+            final Function<Locale, @Nullable Map<String, String>> loader,
+            final Predicate<Locale> hasLocaleFile,
+            final Locale defaultLocale
+        ) {
+            this.loader = loader;
+            this.hasLocaleFile = hasLocaleFile;
+            this.defaultLocale = defaultLocale;
+        }
+
+        int loadedCount() {
+            int count = 0;
+            for (final CompletableFuture<Optional<Map<String, String>>> messages : this.locales.values()) {
+                if (messages.getNow(Optional.empty()).isPresent()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        boolean loaded(final Locale locale) {
+            final @Nullable CompletableFuture<Optional<Map<String, String>>> messages = this.locales.get(locale);
+            return messages != null && messages.getNow(Optional.empty()).isPresent();
+        }
+
+        // Loads outside the map so file I/O never holds a bin, threads asking for the same locale wait on the first load
+        private @Nullable Map<String, String> messages(final Locale locale) {
+            @Nullable CompletableFuture<Optional<Map<String, String>>> messages = this.locales.get(locale);
+            if (messages == null) {
+                final CompletableFuture<Optional<Map<String, String>>> loading = new CompletableFuture<>();
+                messages = this.locales.putIfAbsent(locale, loading);
+                if (messages == null) {
+                    messages = loading;
+                    try {
+                        loading.complete(Optional.ofNullable(this.loader.apply(locale)));
+                    } catch (final RuntimeException e) {
+                        loading.complete(Optional.empty());
+                        throw e;
+                    }
+                }
+            }
+            return messages.join().orElse(null);
+        }
+
+        List<Map<String, String>> chain(final Locale locale) {
+            final Locale key = this.normalize(locale);
+            final @Nullable List<Map<String, String>> cached = this.chains.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            final List<Map<String, String>> built = this.buildChain(key);
+            final @Nullable List<Map<String, String>> previous = this.chains.putIfAbsent(key, built);
+            return previous == null ? built : previous;
+        }
+
+        // Locales without a locale file share the chain of their language or the default locale,
+        // so whatever locale clients report never grows the tables
+        private Locale normalize(final Locale locale) {
+            if (this.chains.containsKey(locale) || this.hasLocaleFile.test(locale)) {
+                return locale;
+            }
+            final Locale language = new Locale(locale.getLanguage());
+            if (this.chains.containsKey(language) || this.hasLocaleFile.test(language)) {
+                return language;
+            }
+            return this.defaultLocale;
+        }
+
+        // de_AT -> de -> default locale -> default language
+        private List<Map<String, String>> buildChain(final Locale locale) {
+            final Set<Locale> order = new LinkedHashSet<>();
+            order.add(locale);
+            order.add(new Locale(locale.getLanguage()));
+            order.add(this.defaultLocale);
+            order.add(new Locale(this.defaultLocale.getLanguage()));
+
+            final List<Map<String, String>> chain = new ArrayList<>(order.size());
+            for (final Locale candidate : order) {
+                final @Nullable Map<String, String> messages = this.messages(candidate);
+                if (messages != null) {
+                    chain.add(messages);
+                }
+            }
+            return List.copyOf(chain);
+        }
+
+    }
+
 }
@@ -248,6 +248,42 @@ public interface CarbonMessages {
     @Message("config.reload.failed")
     void configReloadFailed(final Audience audience);
 
+    /*
+     * =============================================================
+     * ========================= Migration =========================
+     * =============================================================
+     */
+
+    @Message("migration.same_storage")
+    void migrationSameStorage(final Audience audience);
+
+    @Message("migration.shared_database")
+    void migrationSharedDatabase(final Audience audience, final String from, final String to);
+
+    @Message("migration.already_running")
+    void migrationAlreadyRunning(final Audience audience);
+
+    @Message("migration.started")
+    void migrationStarted(final Audience audience, final String from, final String to);
+
+    @Message("migration.progress")
+    void migrationProgress(final Audience audience, final int users, final int parties);
+
+    @Message("migration.complete")
+    void migrationComplete(final Audience audience, final int users, final int parties);
+
+    @Message("migration.failed")
+    void migrationFailed(final Audience audience);
+
+    @Message("metrics.disabled")
+    void metricsDisabled(final Audience audience);
+
+    @Message("metrics.header")
+    void metricsHeader(final Audience audience, final int count);
+
+    @Message("metrics.line")
+    void metricsLine(final Audience audience, final String metric, final String value);
+
     /*
      * =============================================================
      * ====================== Cloud Messages =======================
@@ -351,6 +387,18 @@ public interface CarbonMessages {
     @Message("command.muteinfo.description")
     Component commandMuteInfoDescription();
 
+    @Message("command.migrate.argument.from")
+    Component commandMigrateArgumentFrom();
+
+    @Message("command.migrate.argument.to")
+    Component commandMigrateArgumentTo();
+
+    @Message("command.migrate.description")
+    Component commandMigrateDescription();
+
+    @Message("command.metrics.description")
+    Component commandMetricsDescription();
+
     @Message("command.nickname.argument.player")
     Component commandNicknameArgumentPlayer();
 
@@ -0,0 +1,156 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import ninja.egg82.messenger.packets.AbstractPacket;
+import ninja.egg82.messenger.services.PacketService;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Flushes the packet queue once enough packets are queued, or when the oldest queued packet reaches the latency
+ * budget, whichever happens first.
+ *
+ * <p>Everything queued when a flush runs is published together, so bursts of packets cost one broker publish
+ * instead of one per packet.</p>
+ */
+@DefaultQualifier(NonNull.class)
+final class AdaptiveFlusher {
+
+    private final PacketService packetService;
+    private final ScheduledExecutorService executor;
+    private final long latencyNanos;
+    private final int maxPackets;
+
+    private final Object lock = new Object();
+    private int pending;
+    private boolean flushQueued;
+    private @Nullable ScheduledFuture<?> scheduledFlush;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedPackets = new LongAdder();
+    private final LongAccumulator largestFlush = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator deepestQueue = new LongAccumulator(Math::max, 0);
+
+    AdaptiveFlusher(
+        final PacketService packetService,
+        final ScheduledExecutorService executor,
+        final long latencyBudget,
+        final TimeUnit unit,
+        final int maxPackets
+    ) {
+        this.packetService = packetService;
+        this.executor = executor;
+        this.latencyNanos = unit.toNanos(latencyBudget);
+        this.maxPackets = Math.max(1, maxPackets);
+    }
+
+    /**
+     * Queues a packet.
+     *
+     * @param packet packet
+     * @param urgent whether to flush as soon as possible instead of waiting for the latency budget
+     */
+    void queue(final AbstractPacket packet, final boolean urgent) {
+        this.packetService.queuePacket(packet);
+
+        synchronized (this.lock) {
+            this.pending++;
+            this.deepestQueue.accumulate(this.pending);
+            if (this.flushQueued) {
+                return;
+            }
+            if (urgent || this.pending >= this.maxPackets || this.latencyNanos <= 0) {
+                this.flushQueued = true;
+                this.cancelScheduledFlush();
+                this.executor.execute(this::flush);
+            } else if (this.scheduledFlush == null) {
+                this.scheduledFlush = this.executor.schedule(this::flush, this.latencyNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        final int count;
+        synchronized (this.lock) {
+            count = this.pending;
+            this.pending = 0;
+            this.flushQueued = false;
+            this.cancelScheduledFlush();
+        }
+        if (count == 0) {
+            return;
+        }
+
+        try {
+            this.packetService.flushQueue();
+        } catch (final IndexOutOfBoundsException ignored) {
+
+        }
+        this.flushes.increment();
+        this.flushedPackets.add(count);
+        this.largestFlush.accumulate(count);
+    }
+
+    private void cancelScheduledFlush() {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+    }
+
+    Stats stats() {
+        final int depth;
+        synchronized (this.lock) {
+            depth = this.pending;
+        }
+        return new Stats(
+            this.flushes.sum(),
+            this.flushedPackets.sum(),
+            this.largestFlush.get(),
+            depth,
+            this.deepestQueue.get()
+        );
+    }
+
+    /**
+     * Flush totals since startup.
+     *
+     * @param flushes      flushes that published at least one packet
+     * @param packets      packets published by those flushes
+     * @param largestFlush most packets published by a single flush
+     * @param queueDepth   packets currently waiting for a flush
+     * @param deepestQueue most packets that were waiting at once
+     */
+    record Stats(long flushes, long packets, long largestFlush, int queueDepth, long deepestQueue) {
+
+        double averageFlushSize() {
+            return this.flushes == 0 ? 0 : (double) this.packets / this.flushes;
+        }
+
+    }
+
+}
@@ -30,6 +30,7 @@ import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.api.util.KeyedRenderer;
 import net.draycia.carbon.common.command.commands.WhisperCommand;
 import net.draycia.carbon.common.event.events.CarbonChatEventImpl;
+import net.draycia.carbon.common.messaging.packets.ChannelInterestPacket;
 import net.draycia.carbon.common.messaging.packets.ChatMessagePacket;
 import net.draycia.carbon.common.messaging.packets.DisbandPartyPacket;
 import net.draycia.carbon.common.messaging.packets.InvalidatePartyInvitePacket;
@@ -37,10 +38,14 @@ import net.draycia.carbon.common.messaging.packets.LocalPlayerChangePacket;
 import net.draycia.carbon.common.messaging.packets.LocalPlayersPacket;
 import net.draycia.carbon.common.messaging.packets.PartyChangePacket;
 import net.draycia.carbon.common.messaging.packets.PartyInvitePacket;
+import net.draycia.carbon.common.messaging.packets.RosterRequestPacket;
+import net.draycia.carbon.common.messaging.packets.RosterVersionPacket;
 import net.draycia.carbon.common.messaging.packets.SaveCompletedPacket;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
 import net.draycia.carbon.common.messaging.packets.WhisperPacket;
 import net.draycia.carbon.common.users.NetworkUsers;
 import net.draycia.carbon.common.users.PartyInvites;
+import net.draycia.carbon.common.users.RemoteCarbonPlayer;
 import net.draycia.carbon.common.users.UserManagerInternal;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.text.Component;
@@ -60,6 +65,9 @@ public final class CarbonChatPacketHandler extends AbstractMessagingHandler {
     private final NetworkUsers networkUsers;
     private final WhisperCommand.WhisperHandler whisper;
     private final PartyInvites partyInvites;
+    private final RemoteCarbonPlayer.Factory remotePlayers;
+    private final LocalRoster localRoster;
+    private final ChannelInterest channelInterest;
 
     CarbonChatPacketHandler(
         final CarbonChat carbonChat,
@@ -67,7 +75,10 @@ public final class CarbonChatPacketHandler extends AbstractMessagingHandler {
         final UserManagerInternal<?> userManager,
         final NetworkUsers networkUsers,
         final WhisperCommand.WhisperHandler whisper,
-        final PartyInvites partyInvites
+        final PartyInvites partyInvites,
+        final RemoteCarbonPlayer.Factory remotePlayers,
+        final LocalRoster localRoster,
+        final ChannelInterest channelInterest
     ) {
         super(messagingManager.requirePacketService());
         this.events = carbonChat.eventHandler();
@@ -77,6 +88,9 @@ public final class CarbonChatPacketHandler extends AbstractMessagingHandler {
         this.networkUsers = networkUsers;
         this.whisper = whisper;
         this.partyInvites = partyInvites;
+        this.remotePlayers = remotePlayers;
+        this.localRoster = localRoster;
+        this.channelInterest = channelInterest;
     }
 
     @Override
@@ -104,6 +118,15 @@ public final class CarbonChatPacketHandler extends AbstractMessagingHandler {
         } else if (packet instanceof LocalPlayerChangePacket playerChangePacket) {
             this.networkUsers.handlePacket(playerChangePacket);
             return true;
+        } else if (packet instanceof RosterVersionPacket versionPacket) {
+            this.networkUsers.handlePacket(versionPacket);
+            return true;
+        } else if (packet instanceof RosterRequestPacket requestPacket) {
+            this.localRoster.handle(requestPacket);
+            return true;
+        } else if (packet instanceof ChannelInterestPacket interestPacket) {
+            this.channelInterest.handle(interestPacket);
+            return true;
         } else if (packet instanceof WhisperPacket whisperPacket) {
             this.whisper.handlePacket(whisperPacket);
             return true;
@@ -113,7 +136,11 @@ public final class CarbonChatPacketHandler extends AbstractMessagingHandler {
     }
 
     private boolean handleMessagePacket(final ChatMessagePacket messagePacket) {
-        final CarbonPlayer sender = this.userManager.user(messagePacket.userId()).join();
+        final @Nullable SenderSnapshot snapshot = messagePacket.snapshot();
+        // Packets in the legacy format carry no snapshot
+        final CarbonPlayer sender = snapshot != null
+            ? this.remotePlayers.create(snapshot)
+            : this.userManager.user(messagePacket.userId()).join();
 
         final @Nullable ChatChannel channel = this.channels.channel(messagePacket.channelKey());
 
@@ -0,0 +1,153 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.draycia.carbon.api.CarbonServer;
+import net.draycia.carbon.api.channels.ChannelRegistry;
+import net.draycia.carbon.api.channels.ChatChannel;
+import net.draycia.carbon.api.users.CarbonPlayer;
+import net.draycia.carbon.common.config.ConfigManager;
+import net.draycia.carbon.common.messaging.packets.ChannelInterestPacket;
+import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.kyori.adventure.key.Key;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Tracks which cross-server channels have listeners on each server, so chat in channels nobody else can hear is not
+ * published at all.
+ *
+ * <p>Each server announces the set of channels at least one of its players may hear with a
+ * {@link ChannelInterestPacket}. The set is recomputed every few seconds and sent when it changed, and re-announced
+ * together with the roster version so new servers learn it and departed servers expire.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class ChannelInterest {
+
+    private static final long EXPIRE_AFTER = TimeUnit.SECONDS.toNanos(95);
+
+    private final CarbonServer server;
+    private final ChannelRegistry channels;
+    private final ConfigManager configManager;
+    private final Provider<MessagingManager> messaging;
+    private final PacketFactory packetFactory;
+    // interest and last announcement per server, guarded by this
+    private final Map<UUID, Set<Key>> remote = new HashMap<>();
+    private final Map<UUID, Long> lastHeard = new HashMap<>();
+    private volatile Set<Key> remoteChannels = Set.of();
+    private volatile Set<Key> localChannels = Set.of();
+
+    @Inject
+    private ChannelInterest(
+        final CarbonServer server,
+        final ChannelRegistry channels,
+        final ConfigManager configManager,
+        final Provider<MessagingManager> messaging,
+        final PacketFactory packetFactory
+    ) {
+        this.server = server;
+        this.channels = channels;
+        this.configManager = configManager;
+        this.messaging = messaging;
+        this.packetFactory = packetFactory;
+    }
+
+    /**
+     * Checks whether a chat message in the channel needs to be published to other servers.
+     *
+     * @param channel channel
+     * @return false if the channel is not cross-server, or no other server has a listener for it
+     */
+    public boolean publish(final ChatChannel channel) {
+        if (!channel.crossServer()) {
+            return false;
+        }
+        // Servers on older versions never announce their interest
+        if (this.configManager.primaryConfig().messagingSettings().legacyPacketFormat()) {
+            return true;
+        }
+        return this.remoteChannels.contains(channel.key());
+    }
+
+    /**
+     * Recomputes the channels local players may hear and announces them if they changed.
+     */
+    void update() {
+        final Set<Key> interest = new HashSet<>();
+        final List<? extends CarbonPlayer> players = List.copyOf(this.server.players());
+        for (final Key key : this.channels.keys()) {
+            final @Nullable ChatChannel channel = this.channels.channel(key);
+            if (channel == null || !channel.crossServer()) {
+                continue;
+            }
+            for (final CarbonPlayer player : players) {
+                if (player.hasPermission("carbon.crossserver") && channel.hearingPermitted(player).permitted()) {
+                    interest.add(key);
+                    break;
+                }
+            }
+        }
+
+        if (!interest.equals(this.localChannels)) {
+            this.localChannels = Set.copyOf(interest);
+            this.messaging.get().queuePacketAndFlush(this::interestPacket);
+        }
+    }
+
+    ChannelInterestPacket interestPacket() {
+        return this.packetFactory.channelInterest(this.localChannels);
+    }
+
+    synchronized void handle(final ChannelInterestPacket packet) {
+        this.remote.put(packet.getSender(), packet.channels());
+        this.lastHeard.put(packet.getSender(), System.nanoTime());
+        this.updateRemoteChannels();
+    }
+
+    /**
+     * Forgets servers that stopped announcing their interest.
+     */
+    synchronized void expire() {
+        final long now = System.nanoTime();
+        if (this.lastHeard.values().removeIf(heard -> now - heard > EXPIRE_AFTER)) {
+            this.remote.keySet().retainAll(this.lastHeard.keySet());
+            this.updateRemoteChannels();
+        }
+    }
+
+    private void updateRemoteChannels() {
+        final Set<Key> channels = new HashSet<>();
+        this.remote.values().forEach(channels::addAll);
+        this.remoteChannels = Set.copyOf(channels);
+    }
+
+}
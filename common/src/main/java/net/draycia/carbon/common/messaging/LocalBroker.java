@@ -0,0 +1,184 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import net.draycia.carbon.common.util.ConcurrentUtil;
+import net.draycia.carbon.common.util.ExceptionLoggingScheduledThreadPoolExecutor;
+import ninja.egg82.messenger.packets.Packet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * In-memory broker delivering packets between {@link LocalMessagingService}s in the same JVM.
+ *
+ * <p>Packets of registered types are written to bytes and read back for every receiver, so receivers never share
+ * packet instances and serialization costs the same as with a real broker. Delivery happens on a single thread,
+ * which keeps the order packets were published in. Packets sent to a single server are only written and delivered
+ * once.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class LocalBroker {
+
+    private static final Map<Class<?>, BiFunction<UUID, ByteBuf, ? extends Packet>> PACKET_TYPES = new ConcurrentHashMap<>();
+    private static volatile @MonotonicNonNull LocalBroker shared;
+
+    private final Map<UUID, LocalMessagingService> services = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService delivery;
+    private final Logger logger;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public LocalBroker(final Logger logger) {
+        this.logger = logger;
+        this.delivery = new ExceptionLoggingScheduledThreadPoolExecutor(1,
+            ConcurrentUtil.carbonThreadFactory(logger, "Local Broker"), logger);
+    }
+
+    /**
+     * Gets the broker shared by every Carbon instance in this JVM using the {@code LOCAL} broker type.
+     *
+     * @return shared broker
+     */
+    public static LocalBroker shared() {
+        if (shared == null) {
+            synchronized (LocalBroker.class) {
+                if (shared == null) {
+                    shared = new LocalBroker(LogManager.getLogger("CarbonChat Local Broker"));
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Registers how to read packets of {@code type}, mirroring the registration with the messenger's packet manager.
+     *
+     * @param type    packet type
+     * @param factory packet constructor
+     * @param <T>     packet type
+     */
+    public static <T extends Packet> void registerPacket(final Class<T> type, final BiFunction<UUID, ByteBuf, T> factory) {
+        PACKET_TYPES.put(type, factory);
+    }
+
+    void connect(final LocalMessagingService service) {
+        this.services.put(service.serverId(), service);
+    }
+
+    void disconnect(final LocalMessagingService service) {
+        this.services.remove(service.serverId(), service);
+    }
+
+    void publish(final LocalMessagingService from, final UUID messageId, final Packet packet) {
+        this.published.increment();
+        final @Nullable BiFunction<UUID, ByteBuf, ? extends Packet> factory = PACKET_TYPES.get(packet.getClass());
+        final byte @Nullable [] body = factory == null ? null : this.write(packet);
+
+        for (final LocalMessagingService to : this.services.values()) {
+            if (to != from) {
+                this.deliver(from, to, messageId, packet, factory, body);
+            }
+        }
+    }
+
+    void publish(final LocalMessagingService from, final UUID serverId, final UUID messageId, final Packet packet) {
+        this.published.increment();
+        final @Nullable LocalMessagingService to = this.services.get(serverId);
+        if (to == null || to == from) {
+            return;
+        }
+        final @Nullable BiFunction<UUID, ByteBuf, ? extends Packet> factory = PACKET_TYPES.get(packet.getClass());
+        this.deliver(from, to, messageId, packet, factory, factory == null ? null : this.write(packet));
+    }
+
+    private void deliver(
+        final LocalMessagingService from,
+        final LocalMessagingService to,
+        final UUID messageId,
+        final Packet packet,
+        final @Nullable BiFunction<UUID, ByteBuf, ? extends Packet> factory,
+        final byte @Nullable [] body
+    ) {
+        if (from.lossRate() > 0 && ThreadLocalRandom.current().nextDouble() < from.lossRate()) {
+            this.dropped.increment();
+            return;
+        }
+        final Runnable deliver = () -> {
+            // Read back by the receiver, on its own thread if it has one
+            to.receive(messageId, () -> body == null || factory == null ? packet : factory.apply(packet.getSender(), Unpooled.wrappedBuffer(body)));
+            this.delivered.increment();
+        };
+        if (from.latencyMillis() > 0) {
+            this.delivery.schedule(deliver, from.latencyMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.delivery.execute(deliver);
+        }
+    }
+
+    private byte[] write(final Packet packet) {
+        final ByteBuf buffer = Unpooled.buffer();
+        try {
+            packet.write(buffer);
+            this.bytes.add(buffer.readableBytes());
+            return ByteBufUtil.getBytes(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(this.published.sum(), this.delivered.sum(), this.dropped.sum(), this.bytes.sum());
+    }
+
+    public void shutdown() {
+        ConcurrentUtil.shutdownExecutor(this.delivery, TimeUnit.SECONDS, 1);
+        this.logger.debug("Local broker stopped: {}", this.stats());
+    }
+
+    /**
+     * Broker totals since creation.
+     *
+     * @param published packets published
+     * @param delivered packet deliveries, one per receiver
+     * @param dropped   deliveries dropped by the simulated loss rate
+     * @param bytes     serialized bytes of published packets
+     */
+    public record Stats(long published, long delivered, long dropped, long bytes) {
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import ninja.egg82.messenger.handler.MessagingHandler;
+import ninja.egg82.messenger.packets.Packet;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Messaging service for the {@code LOCAL} broker type, connecting Carbon instances in the same JVM through a
+ * {@link LocalBroker}, with optional simulated latency and packet loss.
+ */
+@DefaultQualifier(NonNull.class)
+public final class LocalMessagingService implements TargetedMessagingService {
+
+    private final LocalBroker broker;
+    private final String name;
+    private final UUID serverId;
+    private final MessagingHandler handler;
+    private final long latencyMillis;
+    private final double lossRate;
+    private final Executor receiver;
+    private volatile boolean closed = false;
+
+    public LocalMessagingService(
+        final LocalBroker broker,
+        final String name,
+        final UUID serverId,
+        final MessagingHandler handler,
+        final long latencyMillis,
+        final double lossRate
+    ) {
+        this(broker, name, serverId, handler, latencyMillis, lossRate, Runnable::run);
+    }
+
+    /**
+     * Creates a service that reads and handles received packets on {@code receiver} instead of the broker's
+     * delivery thread.
+     *
+     * @param broker        broker to connect to
+     * @param name          service name
+     * @param serverId      id of this server
+     * @param handler       handler for received packets
+     * @param latencyMillis simulated latency of sent packets
+     * @param lossRate      simulated loss rate of sent packets
+     * @param receiver      executor reading and handling received packets, should run tasks in order
+     */
+    public LocalMessagingService(
+        final LocalBroker broker,
+        final String name,
+        final UUID serverId,
+        final MessagingHandler handler,
+        final long latencyMillis,
+        final double lossRate,
+        final Executor receiver
+    ) {
+        this.broker = broker;
+        this.name = name;
+        this.serverId = serverId;
+        this.handler = handler;
+        this.latencyMillis = latencyMillis;
+        this.lossRate = lossRate;
+        this.receiver = receiver;
+        broker.connect(this);
+    }
+
+    UUID serverId() {
+        return this.serverId;
+    }
+
+    long latencyMillis() {
+        return this.latencyMillis;
+    }
+
+    double lossRate() {
+        return this.lossRate;
+    }
+
+    void receive(final UUID messageId, final Supplier<Packet> read) {
+        if (!this.closed) {
+            this.receiver.execute(() -> this.handler.handlePacket(messageId, this.name, read.get()));
+        }
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.broker.disconnect(this);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void sendPacket(final @NotNull UUID messageId, final @NotNull Packet packet) {
+        if (!this.closed) {
+            this.broker.publish(this, messageId, packet);
+        }
+    }
+
+    @Override
+    public void sendPacket(final UUID serverId, final UUID messageId, final Packet packet) {
+        if (!this.closed) {
+            this.broker.publish(this, serverId, messageId, packet);
+        }
+    }
+
+}
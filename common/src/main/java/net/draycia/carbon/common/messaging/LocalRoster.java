@@ -0,0 +1,102 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import net.draycia.carbon.common.messaging.packets.LocalPlayerChangePacket;
+import net.draycia.carbon.common.messaging.packets.LocalPlayersPacket;
+import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.messaging.packets.RosterRequestPacket;
+import net.draycia.carbon.common.messaging.packets.RosterVersionPacket;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * The players on this server as announced to the network.
+ *
+ * <p>Every change increments the roster sequence and is sent as a delta carrying it, so receivers can detect
+ * missed changes and ask for the full roster with a {@link RosterRequestPacket}.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class LocalRoster {
+
+    private final UUID serverId;
+    private final Provider<MessagingManager> messaging;
+    private final PacketFactory packetFactory;
+    private final Map<UUID, String> players = new HashMap<>();
+    private long sequence = 0;
+
+    @Inject
+    private LocalRoster(
+        final @ServerId UUID serverId,
+        final Provider<MessagingManager> messaging,
+        final PacketFactory packetFactory
+    ) {
+        this.serverId = serverId;
+        this.messaging = messaging;
+        this.packetFactory = packetFactory;
+    }
+
+    // Packets are queued while holding the lock, so they are sent in sequence order
+
+    public synchronized void joined(final UUID id, final String name) {
+        this.players.put(id, name);
+        final long sequence = ++this.sequence;
+        this.messaging.get().queuePacket(() -> this.packetFactory.localPlayerChangePacket(sequence, id, name, LocalPlayerChangePacket.ChangeType.ADD));
+    }
+
+    public synchronized void left(final UUID id) {
+        if (this.players.remove(id) == null) {
+            return;
+        }
+        final long sequence = ++this.sequence;
+        this.messaging.get().queuePacket(() -> this.packetFactory.localPlayerChangePacket(sequence, id, null, LocalPlayerChangePacket.ChangeType.REMOVE));
+    }
+
+    /**
+     * Tells the network this server no longer has any players, used on shutdown.
+     */
+    public synchronized void clear() {
+        this.players.clear();
+        final long sequence = ++this.sequence;
+        this.messaging.get().queuePacket(() -> this.packetFactory.localPlayersPacket(sequence, Map.of()));
+    }
+
+    synchronized LocalPlayersPacket rosterPacket() {
+        return this.packetFactory.localPlayersPacket(this.sequence, Map.copyOf(this.players));
+    }
+
+    synchronized RosterVersionPacket versionPacket() {
+        return this.packetFactory.rosterVersion(this.sequence);
+    }
+
+    void handle(final RosterRequestPacket packet) {
+        if (packet.target().equals(this.serverId)) {
+            this.messaging.get().queuePacketAndFlush(this::rosterPacket);
+        }
+    }
+
+}
@@ -21,37 +21,42 @@ package net.draycia.carbon.common.messaging;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.netty.buffer.ByteBuf;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import net.draycia.carbon.api.CarbonChat;
-import net.draycia.carbon.api.CarbonServer;
-import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.common.CarbonChatInternal;
 import net.draycia.carbon.common.command.commands.WhisperCommand;
 import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.config.MessagingSettings;
+import net.draycia.carbon.common.messaging.packets.ChannelInterestPacket;
 import net.draycia.carbon.common.messaging.packets.ChatMessagePacket;
 import net.draycia.carbon.common.messaging.packets.DisbandPartyPacket;
 import net.draycia.carbon.common.messaging.packets.InvalidatePartyInvitePacket;
 import net.draycia.carbon.common.messaging.packets.LocalPlayerChangePacket;
 import net.draycia.carbon.common.messaging.packets.LocalPlayersPacket;
-import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.messaging.packets.PacketCompression;
+import net.draycia.carbon.common.messaging.packets.PacketFormat;
 import net.draycia.carbon.common.messaging.packets.PartyChangePacket;
 import net.draycia.carbon.common.messaging.packets.PartyInvitePacket;
+import net.draycia.carbon.common.messaging.packets.RosterRequestPacket;
+import net.draycia.carbon.common.messaging.packets.RosterVersionPacket;
 import net.draycia.carbon.common.messaging.packets.SaveCompletedPacket;
 import net.draycia.carbon.common.messaging.packets.WhisperPacket;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
+import net.draycia.carbon.common.metrics.Histogram;
 import net.draycia.carbon.common.users.NetworkUsers;
 import net.draycia.carbon.common.users.PartyInvites;
+import net.draycia.carbon.common.users.RemoteCarbonPlayer;
 import net.draycia.carbon.common.users.UserManagerInternal;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import net.draycia.carbon.common.util.ExceptionLoggingScheduledThreadPoolExecutor;
@@ -66,6 +71,7 @@ import ninja.egg82.messenger.handler.MessagingHandler;
 import ninja.egg82.messenger.handler.MessagingHandlerImpl;
 import ninja.egg82.messenger.packets.AbstractPacket;
 import ninja.egg82.messenger.packets.MultiPacket;
+import ninja.egg82.messenger.packets.Packet;
 import ninja.egg82.messenger.packets.server.InitializationPacket;
 import ninja.egg82.messenger.packets.server.KeepAlivePacket;
 import ninja.egg82.messenger.packets.server.PacketVersionPacket;
@@ -75,35 +81,55 @@ import ninja.egg82.messenger.services.PacketService;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 @Singleton
 @DefaultQualifier(NonNull.class)
 public class MessagingManager {
 
-    private static final byte protocolVersion = 0;
+    // 0: components as JSON, 1: compact binary components, 2: framed bodies with optional compression,
+    // 3: compression dictionary trained on simulated chat traffic
+    private static final byte LEGACY_PROTOCOL_VERSION = 0;
+    private static final byte CURRENT_PROTOCOL_VERSION = 3;
 
     private final Logger logger;
     private final UUID serverId;
     private final @MonotonicNonNull ScheduledExecutorService scheduledExecutor;
-    private final @MonotonicNonNull MessagingService messagingService;
+    private volatile @MonotonicNonNull MessagingService messagingService;
     private volatile @MonotonicNonNull PacketService packetService;
+    private final @Nullable PacketCompression compression;
+    private final PacketFormat format;
+    private final @MonotonicNonNull AdaptiveFlusher flusher;
+    private final @Nullable MessagingHandlerImpl handlerImpl;
+    private final @Nullable MessagingSettings settings;
+    private final byte protocolVersion;
+    private final NetworkUsers networkUsers;
+    private final LocalRoster localRoster;
+    private final ChannelInterest channelInterest;
+    private final LongAdder routedPackets = new LongAdder();
+    private final LongAdder unroutedPackets = new LongAdder();
 
     @Inject
     public MessagingManager(
         final ConfigManager configManager,
         final CarbonChat carbonChat,
         final @ServerId UUID serverId,
-        final CarbonServer server,
         final Logger logger,
         final UserManagerInternal<?> userManager,
         final NetworkUsers networkUsers,
         final WhisperCommand.WhisperHandler whisper,
-        final PacketFactory packetFactory,
-        final PartyInvites partyInvites
+        final PartyInvites partyInvites,
+        final RemoteCarbonPlayer.Factory remotePlayers,
+        final LocalRoster localRoster,
+        final ChannelInterest channelInterest,
+        final CarbonMetrics metrics
     ) {
         this.serverId = serverId;
         this.logger = logger;
+        this.networkUsers = networkUsers;
+        this.localRoster = localRoster;
+        this.channelInterest = channelInterest;
         final boolean proxy = ((CarbonChatInternal) carbonChat).isProxy();
         if (proxy || !configManager.primaryConfig().messagingSettings().enabled()) {
             if (!proxy) {
@@ -114,84 +140,185 @@ public class MessagingManager {
             this.messagingService = null;
             this.packetService = null;
             this.scheduledExecutor = null;
+            this.compression = null;
+            this.format = PacketFormat.LEGACY;
+            this.flusher = null;
+            this.handlerImpl = null;
+            this.settings = null;
+            this.protocolVersion = LEGACY_PROTOCOL_VERSION;
             return;
         }
 
-        PacketManager.register(MultiPacket.class, MultiPacket::new);
-        PacketManager.register(KeepAlivePacket.class, KeepAlivePacket::new);
-        PacketManager.register(InitializationPacket.class, InitializationPacket::new);
-        PacketManager.register(PacketVersionPacket.class, PacketVersionPacket::new);
-        PacketManager.register(PacketVersionRequestPacket.class, PacketVersionRequestPacket::new);
-        PacketManager.register(ShutdownPacket.class, ShutdownPacket::new);
-        //PacketManager.register(HeartbeatPacket.class, HeartbeatPacket::new);
-        PacketManager.register(ChatMessagePacket.class, ChatMessagePacket::new);
-        PacketManager.register(SaveCompletedPacket.class, SaveCompletedPacket::new);
-        PacketManager.register(LocalPlayersPacket.class, LocalPlayersPacket::new);
-        PacketManager.register(LocalPlayerChangePacket.class, LocalPlayerChangePacket::new);
-        PacketManager.register(WhisperPacket.class, WhisperPacket::new);
-        PacketManager.register(PartyChangePacket.class, PartyChangePacket::new);
-        PacketManager.register(PartyInvitePacket.class, PartyInvitePacket::new);
-        PacketManager.register(InvalidatePartyInvitePacket.class, InvalidatePartyInvitePacket::new);
-        PacketManager.register(DisbandPartyPacket.class, DisbandPartyPacket::new);
-
-        this.packetService = new PacketService(4, false, protocolVersion);
+        registerPackets();
+
+        final MessagingSettings settings = configManager.primaryConfig().messagingSettings();
+        this.settings = settings;
+        final boolean legacy = settings.legacyPacketFormat();
+        this.compression = legacy ? null : new PacketCompression(settings.compressionThreshold(),
+            metrics.histogram("carbon_messaging_packet_bytes", "Size of packet bodies sent to the broker", Histogram.Unit.BYTES));
+        this.format = this.compression == null ? PacketFormat.LEGACY : PacketFormat.current(this.compression);
+        PacketFormat.register(serverId, this.format);
+        this.protocolVersion = legacy ? LEGACY_PROTOCOL_VERSION : CURRENT_PROTOCOL_VERSION;
+
+        this.packetService = new PacketService(4, false, this.protocolVersion);
         this.scheduledExecutor = new ExceptionLoggingScheduledThreadPoolExecutor(4,
             ConcurrentUtil.carbonThreadFactory(logger, "MessagingManager"), logger);
+        this.flusher = new AdaptiveFlusher(this.packetService, this.scheduledExecutor,
+            settings.flushLatencyMillis(), TimeUnit.MILLISECONDS, settings.flushMaxPackets());
+        this.registerMetrics(metrics, this.flusher, this.compression);
 
-        final MessagingHandlerImpl handlerImpl = new MessagingHandlerImpl(this.packetService);
-        handlerImpl.addHandler(new CarbonServerHandler(server, serverId, this.packetService, handlerImpl, packetFactory));
-        handlerImpl.addHandler(new CarbonChatPacketHandler(carbonChat, this, userManager, networkUsers, whisper, partyInvites));
+        this.handlerImpl = new MessagingHandlerImpl(this.packetService);
+        this.handlerImpl.addHandler(new CarbonServerHandler(serverId, this.packetService, this.handlerImpl, localRoster, channelInterest, legacy));
+        this.handlerImpl.addHandler(new CarbonChatPacketHandler(carbonChat, this, userManager, networkUsers, whisper, partyInvites, remotePlayers, localRoster, channelInterest));
+    }
 
+    /**
+     * Connects to the broker and starts the periodic messaging tasks. Blocks until the broker is reachable,
+     * so startup runs it off the main thread once everything incoming packets depend on has loaded.
+     */
+    public void connect() {
+        if (this.packetService == null || this.handlerImpl == null || this.settings == null || this.scheduledExecutor == null || this.flusher == null) {
+            return;
+        }
+        final PacketService packetService = this.packetService;
+        final AdaptiveFlusher flusher = this.flusher;
+
+        final MessagingService messagingService;
         try {
-            this.messagingService = this.initMessagingService(
-                this.packetService,
-                handlerImpl,
+            messagingService = this.initMessagingService(
+                packetService,
+                this.handlerImpl,
                 new File("/"),
-                configManager.primaryConfig().messagingSettings()
+                this.settings
             );
         } catch (final IOException | TimeoutException | InterruptedException e) {
             throw Exceptions.rethrow(e);
         }
+        this.messagingService = messagingService;
 
-        this.packetService.addMessenger(this.messagingService);
+        packetService.addMessenger(messagingService);
 
-        this.packetService.queuePacket(new InitializationPacket(serverId, protocolVersion));
-        this.packetService.flushQueue();
+        packetService.queuePacket(new InitializationPacket(this.serverId, this.protocolVersion));
+        packetService.flushQueue();
 
         // Broadcast keepalive packets
+        this.scheduledExecutor.scheduleAtFixedRate(() -> flusher.queue(new KeepAlivePacket(this.serverId), true), 5, 5, TimeUnit.SECONDS);
+
+        // Lets other servers notice roster changes they missed, and forget servers that went away
         this.scheduledExecutor.scheduleAtFixedRate(() -> {
-            this.packetService.queuePacket(new KeepAlivePacket(serverId));
-            this.packetService.flushQueue();
-        }, 5, 5, TimeUnit.SECONDS);
+            // Older versions don't know roster versions, legacy rosters are sent in full instead
+            if (!this.format.legacy()) {
+                this.queuePacketAndFlush(this.localRoster::versionPacket);
+            }
+            this.queuePacket(this.channelInterest::interestPacket);
+            this.networkUsers.expire();
+            this.channelInterest.expire();
+            if (messagingService instanceof ServerChannelMessagingService serverChannels) {
+                serverChannels.retain(this.networkUsers.knownServers());
+            }
+        }, 30, 30, TimeUnit.SECONDS);
+
+        // Announces channel listeners as players join, leave and change permissions
+        this.scheduledExecutor.scheduleAtFixedRate(this.channelInterest::update, 2, 2, TimeUnit.SECONDS);
 
+        // Picks up packets the messenger's own handlers queue without going through the flusher
         this.scheduledExecutor.scheduleAtFixedRate(() -> {
             try {
-                this.packetService.flushQueue();
+                packetService.flushQueue();
             } catch (final IndexOutOfBoundsException ignored) {
 
             }
         }, 0, 250, TimeUnit.MILLISECONDS);
     }
 
+    private void registerMetrics(final CarbonMetrics metrics, final AdaptiveFlusher flusher, final @Nullable PacketCompression compression) {
+        metrics.gauge("carbon_messaging_queue_depth", "Packets waiting to be sent to the broker", () -> flusher.stats().queueDepth());
+        metrics.counter("carbon_messaging_flushes_total", "Publishes of queued packets to the broker", () -> flusher.stats().flushes());
+        metrics.counter("carbon_messaging_packets_total", "Packets sent to the broker", () -> flusher.stats().packets());
+        metrics.counter("carbon_messaging_routed_packets_total", "Player packets sent only to the player's server", this.routedPackets::sum);
+        metrics.counter("carbon_messaging_unrouted_packets_total", "Player packets broadcast to all servers", this.unroutedPackets::sum);
+        if (compression != null) {
+            metrics.counter("carbon_messaging_body_bytes_total", "Packet body bytes before compression", () -> compression.stats().bodyBytes());
+            metrics.counter("carbon_messaging_wire_bytes_total", "Packet body bytes after compression", () -> compression.stats().wireBytes());
+        }
+    }
+
+    static void registerPackets() {
+        register(MultiPacket.class, MultiPacket::new);
+        register(KeepAlivePacket.class, KeepAlivePacket::new);
+        register(InitializationPacket.class, InitializationPacket::new);
+        register(PacketVersionPacket.class, PacketVersionPacket::new);
+        register(PacketVersionRequestPacket.class, PacketVersionRequestPacket::new);
+        register(ShutdownPacket.class, ShutdownPacket::new);
+        //register(HeartbeatPacket.class, HeartbeatPacket::new);
+        register(ChatMessagePacket.class, ChatMessagePacket::new);
+        register(SaveCompletedPacket.class, SaveCompletedPacket::new);
+        register(LocalPlayersPacket.class, LocalPlayersPacket::new);
+        register(LocalPlayerChangePacket.class, LocalPlayerChangePacket::new);
+        register(WhisperPacket.class, WhisperPacket::new);
+        register(PartyChangePacket.class, PartyChangePacket::new);
+        register(PartyInvitePacket.class, PartyInvitePacket::new);
+        register(InvalidatePartyInvitePacket.class, InvalidatePartyInvitePacket::new);
+        register(DisbandPartyPacket.class, DisbandPartyPacket::new);
+        register(RosterVersionPacket.class, RosterVersionPacket::new);
+        register(RosterRequestPacket.class, RosterRequestPacket::new);
+        register(ChannelInterestPacket.class, ChannelInterestPacket::new);
+    }
+
+    private static <T extends Packet> void register(final Class<T> type, final BiFunction<UUID, ByteBuf, T> factory) {
+        PacketManager.register(type, factory::apply);
+        LocalBroker.registerPacket(type, factory);
+    }
+
     public PacketService requirePacketService() {
         return Objects.requireNonNull(this.packetService, "packetService");
     }
 
-    private void withPacketService(final Consumer<PacketService> consumer) {
-        if (this.packetService != null) {
-            consumer.accept(this.packetService);
+    /**
+     * Queues a packet and flushes as soon as possible, together with any other packets queued meanwhile.
+     *
+     * @param makePacket packet supplier, not called when messaging is disabled
+     */
+    public void queuePacketAndFlush(final Supplier<? extends AbstractPacket> makePacket) {
+        if (this.flusher != null && this.packetService != null) {
+            this.flusher.queue(makePacket.get(), true);
         }
     }
 
-    public void queuePacketAndFlush(final Supplier<? extends AbstractPacket> makePacket) {
-        this.withPacketService(service -> {
-            service.queuePacket(makePacket.get());
-            service.flushQueue();
-        });
+    /**
+     * Queues a packet to be flushed within the configured latency budget.
+     *
+     * @param makePacket packet supplier, not called when messaging is disabled
+     */
+    public void queuePacket(final Supplier<? extends AbstractPacket> makePacket) {
+        if (this.flusher != null && this.packetService != null) {
+            this.flusher.queue(makePacket.get(), false);
+        }
     }
 
-    public void queuePacket(final Supplier<? extends AbstractPacket> makePacket) {
-        this.withPacketService(service -> service.queuePacket(makePacket.get()));
+    /**
+     * Sends a packet only to the servers hosting a player, when the broker supports sending to a single server, the
+     * player's location is known and the legacy packet format is off. Otherwise the packet is queued for every server
+     * like {@link #queuePacket}.
+     *
+     * @param playerId   id of the player the packet is meant for
+     * @param makePacket packet supplier, not called when messaging is disabled
+     */
+    public void queuePacketFor(final UUID playerId, final Supplier<? extends AbstractPacket> makePacket) {
+        if (this.flusher == null || this.packetService == null) {
+            return;
+        }
+        final Set<UUID> servers = this.networkUsers.servers(playerId);
+        if (servers.isEmpty() || this.format.legacy() || !(this.messagingService instanceof TargetedMessagingService targeted)) {
+            this.unroutedPackets.increment();
+            this.flusher.queue(makePacket.get(), false);
+            return;
+        }
+        final AbstractPacket packet = makePacket.get();
+        for (final UUID server : servers) {
+            targeted.sendPacket(server, UUID.randomUUID(), packet);
+        }
+        this.routedPackets.increment();
     }
 
     public void onShutdown() {
@@ -206,6 +333,20 @@ public class MessagingManager {
         if (this.messagingService != null) {
             this.messagingService.close();
         }
+        PacketFormat.unregister(this.serverId, this.format);
+        if (this.compression != null) {
+            final PacketCompression.Stats stats = this.compression.stats();
+            this.logger.info("Sent {} packets ({} compressed), {} bytes before and {} bytes after compression ({}%). Compression took {}ms, decompression {}ms.",
+                stats.packets(), stats.compressedPackets(), stats.bodyBytes(), stats.wireBytes(), Math.round(stats.ratio() * 100),
+                TimeUnit.NANOSECONDS.toMillis(stats.compressNanos()), TimeUnit.NANOSECONDS.toMillis(stats.decompressNanos()));
+        }
+        if (this.flusher != null) {
+            final AdaptiveFlusher.Stats stats = this.flusher.stats();
+            this.logger.info("Flushed {} packets in {} flushes (average {}, largest {}), deepest queue was {} packets.",
+                stats.packets(), stats.flushes(), String.format("%.1f", stats.averageFlushSize()), stats.largestFlush(), stats.deepestQueue());
+            this.logger.info("Sent {} player packets to the hosting server only, {} to every server.",
+                this.routedPackets.sum(), this.unroutedPackets.sum());
+        }
     }
 
     private MessagingService initMessagingService(
@@ -217,48 +358,67 @@ public class MessagingManager {
         final String name = "engine1";
         final String channelName = "carbon-data";
 
-        return switch (messagingSettings.brokerType()) {
+        final ServerChannelMessagingService.@Nullable Connector connector = switch (messagingSettings.brokerType()) {
             case RABBITMQ -> {
                 this.logger.info("Initializing RabbitMQ Messaging services...");
 
-                final RabbitMQMessagingService.Builder builder = RabbitMQMessagingService.builder(packetService, name, channelName, this.serverId, handlerImpl, 0L, false, packetDir)
-                    .url(messagingSettings.url(), messagingSettings.port(), messagingSettings.vhost())
-                    .timeout(5000);
+                yield (serviceName, channel, handler) -> {
+                    final RabbitMQMessagingService.Builder builder = RabbitMQMessagingService.builder(packetService, serviceName, channel, this.serverId, handler, 0L, false, packetDir)
+                        .url(messagingSettings.url(), messagingSettings.port(), messagingSettings.vhost())
+                        .timeout(5000);
 
-                if (messagingSettings.username() != null && !messagingSettings.username().isBlank()) {
-                    builder.credentials(messagingSettings.username(), messagingSettings.password());
-                }
+                    if (messagingSettings.username() != null && !messagingSettings.username().isBlank()) {
+                        builder.credentials(messagingSettings.username(), messagingSettings.password());
+                    }
 
-                yield builder.build();
+                    return builder.build();
+                };
             }
             case NATS -> {
                 this.logger.info("Initializing NATS Messaging services...");
 
-                final NATSMessagingService.Builder builder = NATSMessagingService.builder(packetService, name, channelName, this.serverId, handlerImpl, 0L, false, packetDir)
-                    .url(messagingSettings.url(), messagingSettings.port())
-                    .life(5000);
+                yield (serviceName, channel, handler) -> {
+                    final NATSMessagingService.Builder builder = NATSMessagingService.builder(packetService, serviceName, channel, this.serverId, handler, 0L, false, packetDir)
+                        .url(messagingSettings.url(), messagingSettings.port())
+                        .life(5000);
 
-                if (messagingSettings.credentialsFile() != null && !messagingSettings.credentialsFile().isBlank()) {
-                    builder.credentials(messagingSettings.credentialsFile());
-                }
+                    if (messagingSettings.credentialsFile() != null && !messagingSettings.credentialsFile().isBlank()) {
+                        builder.credentials(messagingSettings.credentialsFile());
+                    }
 
-                yield builder.build();
+                    return builder.build();
+                };
             }
             case REDIS -> {
                 this.logger.info("Initializing Redis Messaging services...");
 
-                final RedisMessagingService.Builder builder = RedisMessagingService.builder(packetService, name, channelName, this.serverId, handlerImpl, 0L, false, packetDir)
-                    .url(messagingSettings.url(), messagingSettings.port());
+                yield (serviceName, channel, handler) -> {
+                    final RedisMessagingService.Builder builder = RedisMessagingService.builder(packetService, serviceName, channel, this.serverId, handler, 0L, false, packetDir)
+                        .url(messagingSettings.url(), messagingSettings.port());
 
-                if (messagingSettings.password() != null && !messagingSettings.password().isBlank()) {
-                    builder.credentials(messagingSettings.password());
-                }
+                    if (messagingSettings.password() != null && !messagingSettings.password().isBlank()) {
+                        builder.credentials(messagingSettings.password());
+                    }
 
-                yield builder.build();
+                    return builder.build();
+                };
+            }
+            case LOCAL -> {
+                this.logger.info("Initializing local Messaging services...");
+
+                yield null;
             }
             case NONE ->
                 throw new IllegalStateException("MessagingManager initialized with no messaging broker selected!");
         };
+
+        if (connector == null) {
+            return new LocalMessagingService(LocalBroker.shared(), name, this.serverId, handlerImpl,
+                messagingSettings.localLatencyMillis(), messagingSettings.localLossRate());
+        }
+        // Packets for a single server go to its own channel, see queuePacketFor
+        return new ServerChannelMessagingService(name, channelName, this.serverId, connector, handlerImpl,
+            new MessagingHandlerImpl(packetService), this.scheduledExecutor, this.logger);
     }
 
     public enum BrokerType {
@@ -266,34 +426,35 @@ public class MessagingManager {
         RABBITMQ,
         NATS,
         REDIS,
+        LOCAL,
     }
 
     private static final class CarbonServerHandler extends AbstractServerMessagingHandler {
 
-        private final CarbonServer server;
-        private final PacketFactory packetFactory;
+        private final LocalRoster localRoster;
+        private final ChannelInterest channelInterest;
+        private final boolean legacy;
 
         private CarbonServerHandler(
-            final @NonNull CarbonServer server,
             final @NonNull UUID serverId,
             final @NonNull PacketService packetService,
             final @NonNull MessagingHandler messagingHandler,
-            final @NonNull PacketFactory packetFactory
+            final @NonNull LocalRoster localRoster,
+            final @NonNull ChannelInterest channelInterest,
+            final boolean legacy
         ) {
             super(serverId, packetService, messagingHandler);
-            this.server = server;
-            this.packetFactory = packetFactory;
+            this.localRoster = localRoster;
+            this.channelInterest = channelInterest;
+            this.legacy = legacy;
         }
 
         @Override
         protected void handleInitialization(final @NonNull InitializationPacket packet) {
             super.handleInitialization(packet);
-            final List<? extends CarbonPlayer> players = this.server.players();
-            final Map<UUID, String> map = new HashMap<>();
-            for (final CarbonPlayer player : players) {
-                map.put(player.uuid(), player.username());
-            }
-            this.packetService.queuePacket(this.packetFactory.localPlayersPacket(map));
+            // The new server asks for the full rosters it is missing, older versions expect them right away
+            this.packetService.queuePacket(this.legacy ? this.localRoster.rosterPacket() : this.localRoster.versionPacket());
+            this.packetService.queuePacket(this.channelInterest.interestPacket());
         }
 
     }
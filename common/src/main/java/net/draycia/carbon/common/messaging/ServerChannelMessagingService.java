@@ -0,0 +1,177 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import net.draycia.carbon.common.util.Exceptions;
+import ninja.egg82.messenger.MessagingService;
+import ninja.egg82.messenger.handler.MessagingHandler;
+import ninja.egg82.messenger.packets.Packet;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Messaging service for the network brokers that can send a packet to a single server.
+ *
+ * <p>Broadcasts go through the shared channel. Every server also listens on its own
+ * {@code <channel>-<serverId>} channel, and packets for one server are published there through a send-only
+ * connection opened in the background the first time that server is targeted. Until that connection is up,
+ * or if it fails, packets are broadcast instead.</p>
+ */
+@DefaultQualifier(NonNull.class)
+final class ServerChannelMessagingService implements TargetedMessagingService {
+
+    private final MessagingService broadcast;
+    private final MessagingService inbox;
+    private final String name;
+    private final String channelName;
+    private final Connector connector;
+    private final MessagingHandler discardingHandler;
+    private final Executor executor;
+    private final Logger logger;
+    private final Map<UUID, CompletableFuture<MessagingService>> outboxes = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    ServerChannelMessagingService(
+        final String name,
+        final String channelName,
+        final UUID serverId,
+        final Connector connector,
+        final MessagingHandler handler,
+        final MessagingHandler discardingHandler,
+        final Executor executor,
+        final Logger logger
+    ) throws IOException, TimeoutException, InterruptedException {
+        this.name = name;
+        this.channelName = channelName;
+        this.connector = connector;
+        this.discardingHandler = discardingHandler;
+        this.executor = executor;
+        this.logger = logger;
+        this.broadcast = connector.connect(name, channelName, handler);
+        this.inbox = connector.connect(name + "-direct", serverChannel(channelName, serverId), handler);
+    }
+
+    static String serverChannel(final String channelName, final UUID serverId) {
+        return channelName + "-" + serverId;
+    }
+
+    @Override
+    public void sendPacket(final UUID serverId, final UUID messageId, final Packet packet) {
+        if (this.closed) {
+            return;
+        }
+        final @Nullable MessagingService outbox = this.outbox(serverId).getNow(null);
+        if (outbox == null) {
+            send(this.broadcast, messageId, packet);
+            return;
+        }
+        // Publishing may block on the broker, keep it off the caller's thread
+        this.executor.execute(() -> send(outbox, messageId, packet));
+    }
+
+    private CompletableFuture<MessagingService> outbox(final UUID serverId) {
+        return this.outboxes.computeIfAbsent(serverId, $ -> {
+            final CompletableFuture<MessagingService> connecting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    // Only publishes, anything received on the other server's channel is theirs
+                    return this.connector.connect(this.name + "-" + serverId, serverChannel(this.channelName, serverId), this.discardingHandler);
+                } catch (final IOException | TimeoutException | InterruptedException e) {
+                    throw Exceptions.rethrow(e);
+                }
+            }, this.executor);
+            connecting.whenComplete((service, thr) -> {
+                if (thr != null) {
+                    this.logger.warn("Could not connect to the channel of server {}, broadcasting its packets instead", serverId, thr);
+                    this.outboxes.remove(serverId, connecting);
+                } else if (this.closed) {
+                    service.close();
+                }
+            });
+            return connecting;
+        });
+    }
+
+    /**
+     * Closes the connections to servers that are no longer part of the network.
+     *
+     * @param servers servers still known
+     */
+    void retain(final Set<UUID> servers) {
+        for (final UUID serverId : Set.copyOf(this.outboxes.keySet())) {
+            if (!servers.contains(serverId)) {
+                final @Nullable CompletableFuture<MessagingService> outbox = this.outboxes.remove(serverId);
+                if (outbox != null) {
+                    outbox.thenAccept(MessagingService::close);
+                }
+            }
+        }
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return this.broadcast.getName();
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.inbox.close();
+        this.broadcast.close();
+        this.outboxes.values().forEach(outbox -> outbox.thenAccept(MessagingService::close));
+        this.outboxes.clear();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void sendPacket(final @NotNull UUID messageId, final @NotNull Packet packet) {
+        send(this.broadcast, messageId, packet);
+    }
+
+    private static void send(final MessagingService service, final UUID messageId, final Packet packet) {
+        try {
+            service.sendPacket(messageId, packet);
+        } catch (final Exception e) {
+            throw Exceptions.rethrow(e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Connector {
+
+        MessagingService connect(String name, String channelName, MessagingHandler handler) throws IOException, TimeoutException, InterruptedException;
+
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.util.UUID;
+import ninja.egg82.messenger.MessagingService;
+import ninja.egg82.messenger.packets.Packet;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * A messaging service that can deliver a packet to a single server instead of every server on the channel.
+ */
+@DefaultQualifier(NonNull.class)
+public interface TargetedMessagingService extends MessagingService {
+
+    /**
+     * Sends a packet to one server only.
+     *
+     * @param serverId  id of the receiving server
+     * @param messageId message id
+     * @param packet    packet
+     */
+    void sendPacket(UUID serverId, UUID messageId, Packet packet);
+
+}
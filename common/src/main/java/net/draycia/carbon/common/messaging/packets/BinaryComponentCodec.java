@@ -0,0 +1,420 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging.packets;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.nbt.api.BinaryTagHolder;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.KeybindComponent;
+import net.kyori.adventure.text.ScoreComponent;
+import net.kyori.adventure.text.SelectorComponent;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.intellij.lang.annotations.Subst;
+
+/**
+ * Compact binary encoding of Adventure components for packets.
+ *
+ * <p>An encoded component starts with {@link #FORMAT_V1}, which can never be the first byte of the length-prefixed
+ * JSON written by older versions, so readers can tell the two apart with {@link #isBinary(ByteBuf)}. Within one component, repeated strings
+ * (keys, names, repeated text) and repeated styles are written once and then referenced by index.</p>
+ */
+@DefaultQualifier(NonNull.class)
+final class BinaryComponentCodec {
+
+    static final byte FORMAT_V1 = 0;
+
+    private static final int MAX_DEPTH = 512;
+
+    private static final int TYPE_TEXT = 0;
+    private static final int TYPE_TRANSLATABLE = 1;
+    private static final int TYPE_KEYBIND = 2;
+    private static final int TYPE_SCORE = 3;
+    private static final int TYPE_SELECTOR = 4;
+    // NBT components and anything added to Adventure later
+    private static final int TYPE_JSON = 5;
+
+    private static final TextDecoration[] DECORATIONS = {
+        TextDecoration.OBFUSCATED,
+        TextDecoration.BOLD,
+        TextDecoration.STRIKETHROUGH,
+        TextDecoration.UNDERLINED,
+        TextDecoration.ITALIC
+    };
+
+    private static final int STYLE_COLOR = 1;
+    private static final int STYLE_FONT = 1 << 1;
+    private static final int STYLE_INSERTION = 1 << 2;
+    private static final int STYLE_CLICK = 1 << 3;
+    private static final int STYLE_HOVER = 1 << 4;
+
+    private static final int HOVER_TEXT = 0;
+    private static final int HOVER_ITEM = 1;
+    private static final int HOVER_ENTITY = 2;
+
+    private BinaryComponentCodec() {
+    }
+
+    static void write(final Component component, final ByteBuf buffer) {
+        buffer.writeByte(FORMAT_V1);
+        new Writer(buffer).component(component);
+    }
+
+    static boolean isBinary(final ByteBuf buffer) {
+        return buffer.getByte(buffer.readerIndex()) == FORMAT_V1;
+    }
+
+    static Component read(final ByteBuf buffer) {
+        buffer.skipBytes(1);
+        return new Reader(buffer).component(0);
+    }
+
+    private static final class Writer {
+
+        private final ByteBuf buffer;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Style, Integer> styles = new HashMap<>();
+
+        Writer(final ByteBuf buffer) {
+            this.buffer = buffer;
+        }
+
+        void component(final Component component) {
+            if (component instanceof TextComponent text) {
+                writeVarInt(this.buffer, TYPE_TEXT);
+                this.string(text.content());
+            } else if (component instanceof TranslatableComponent translatable) {
+                writeVarInt(this.buffer, TYPE_TRANSLATABLE);
+                this.string(translatable.key());
+                this.nullableString(translatable.fallback());
+                writeVarInt(this.buffer, translatable.args().size());
+                for (final Component arg : translatable.args()) {
+                    this.component(arg);
+                }
+            } else if (component instanceof KeybindComponent keybind) {
+                writeVarInt(this.buffer, TYPE_KEYBIND);
+                this.string(keybind.keybind());
+            } else if (component instanceof ScoreComponent score) {
+                writeVarInt(this.buffer, TYPE_SCORE);
+                this.string(score.name());
+                this.string(score.objective());
+            } else if (component instanceof SelectorComponent selector) {
+                writeVarInt(this.buffer, TYPE_SELECTOR);
+                this.string(selector.pattern());
+                this.nullableComponent(selector.separator());
+            } else {
+                writeVarInt(this.buffer, TYPE_JSON);
+                this.string(GsonComponentSerializer.gson().serialize(component));
+                return;
+            }
+            this.style(component.style());
+            writeVarInt(this.buffer, component.children().size());
+            for (final Component child : component.children()) {
+                this.component(child);
+            }
+        }
+
+        private void nullableComponent(final @Nullable Component component) {
+            this.buffer.writeBoolean(component != null);
+            if (component != null) {
+                this.component(component);
+            }
+        }
+
+        // Either (index << 1 | 1) for a style already written, or 0 followed by the style
+        private void style(final Style style) {
+            final @Nullable Integer index = this.styles.get(style);
+            if (index != null) {
+                writeVarInt(this.buffer, index << 1 | 1);
+                return;
+            }
+            this.styles.put(style, this.styles.size());
+            writeVarInt(this.buffer, 0);
+
+            final @Nullable TextColor color = style.color();
+            final @Nullable Key font = style.font();
+            final @Nullable String insertion = style.insertion();
+            final @Nullable ClickEvent clickEvent = style.clickEvent();
+            final @Nullable HoverEvent<?> hoverEvent = style.hoverEvent();
+            int flags = 0;
+            if (color != null) {
+                flags |= STYLE_COLOR;
+            }
+            if (font != null) {
+                flags |= STYLE_FONT;
+            }
+            if (insertion != null) {
+                flags |= STYLE_INSERTION;
+            }
+            if (clickEvent != null) {
+                flags |= STYLE_CLICK;
+            }
+            if (hoverEvent != null) {
+                flags |= STYLE_HOVER;
+            }
+            writeVarInt(this.buffer, flags);
+
+            // Two bits per decoration: not set, false, true
+            int decorations = 0;
+            for (int i = 0; i < DECORATIONS.length; i++) {
+                final TextDecoration.State state = style.decoration(DECORATIONS[i]);
+                final int bits = state == TextDecoration.State.NOT_SET ? 0 : state == TextDecoration.State.FALSE ? 1 : 2;
+                decorations |= bits << (i * 2);
+            }
+            writeVarInt(this.buffer, decorations);
+
+            if (color != null) {
+                this.buffer.writeMedium(color.value());
+            }
+            if (font != null) {
+                this.string(font.asString());
+            }
+            if (insertion != null) {
+                this.string(insertion);
+            }
+            if (clickEvent != null) {
+                this.string(ClickEvent.Action.NAMES.key(clickEvent.action()));
+                this.string(clickEvent.value());
+            }
+            if (hoverEvent != null) {
+                this.hover(hoverEvent);
+            }
+        }
+
+        private void hover(final HoverEvent<?> hoverEvent) {
+            if (hoverEvent.value() instanceof Component text) {
+                writeVarInt(this.buffer, HOVER_TEXT);
+                this.component(text);
+            } else if (hoverEvent.value() instanceof HoverEvent.ShowItem item) {
+                writeVarInt(this.buffer, HOVER_ITEM);
+                this.string(item.item().asString());
+                writeVarInt(this.buffer, item.count());
+                final @Nullable BinaryTagHolder nbt = item.nbt();
+                this.nullableString(nbt == null ? null : nbt.string());
+            } else if (hoverEvent.value() instanceof HoverEvent.ShowEntity entity) {
+                writeVarInt(this.buffer, HOVER_ENTITY);
+                this.string(entity.type().asString());
+                this.buffer.writeLong(entity.id().getMostSignificantBits());
+                this.buffer.writeLong(entity.id().getLeastSignificantBits());
+                this.nullableComponent(entity.name());
+            } else {
+                throw new IllegalArgumentException("Unknown hover event value " + hoverEvent.value());
+            }
+        }
+
+        private void nullableString(final @Nullable String value) {
+            this.buffer.writeBoolean(value != null);
+            if (value != null) {
+                this.string(value);
+            }
+        }
+
+        // Either (index << 1 | 1) for a string already written, or (length << 1) followed by UTF-8 bytes
+        private void string(final String value) {
+            final @Nullable Integer index = this.strings.get(value);
+            if (index != null) {
+                writeVarInt(this.buffer, index << 1 | 1);
+                return;
+            }
+            this.strings.put(value, this.strings.size());
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(this.buffer, bytes.length << 1);
+            this.buffer.writeBytes(bytes);
+        }
+
+    }
+
+    private static final class Reader {
+
+        private final ByteBuf buffer;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Style> styles = new ArrayList<>();
+
+        Reader(final ByteBuf buffer) {
+            this.buffer = buffer;
+        }
+
+        Component component(final int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Component nested deeper than " + MAX_DEPTH);
+            }
+            final int type = readVarInt(this.buffer);
+            final Component component = switch (type) {
+                case TYPE_TEXT -> Component.text(this.string());
+                case TYPE_TRANSLATABLE -> {
+                    final String key = this.string();
+                    final @Nullable String fallback = this.nullableString();
+                    final int size = readVarInt(this.buffer);
+                    final List<Component> args = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        args.add(this.component(depth + 1));
+                    }
+                    yield Component.translatable(key, fallback, args);
+                }
+                case TYPE_KEYBIND -> Component.keybind(this.string());
+                case TYPE_SCORE -> Component.score(this.string(), this.string());
+                case TYPE_SELECTOR -> Component.selector(this.string(), this.nullableComponent(depth));
+                case TYPE_JSON -> GsonComponentSerializer.gson().deserialize(this.string());
+                default -> throw new IllegalArgumentException("Unknown component type " + type);
+            };
+            if (type == TYPE_JSON) {
+                return component;
+            }
+
+            final Style style = this.style(depth);
+            final int size = readVarInt(this.buffer);
+            final List<Component> children = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                children.add(this.component(depth + 1));
+            }
+            return component.style(style).children(children);
+        }
+
+        private @Nullable Component nullableComponent(final int depth) {
+            return this.buffer.readBoolean() ? this.component(depth + 1) : null;
+        }
+
+        private Style style(final int depth) {
+            final int header = readVarInt(this.buffer);
+            if ((header & 1) != 0) {
+                return this.styles.get(header >>> 1);
+            }
+            // Reserve the index before reading, nested hover components may define styles of their own
+            final int index = this.styles.size();
+            this.styles.add(Style.empty());
+
+            final int flags = readVarInt(this.buffer);
+            final int decorations = readVarInt(this.buffer);
+            final Style.Builder builder = Style.style();
+            for (int i = 0; i < DECORATIONS.length; i++) {
+                final int bits = decorations >>> (i * 2) & 3;
+                if (bits != 0) {
+                    builder.decoration(DECORATIONS[i], bits == 2);
+                }
+            }
+            if ((flags & STYLE_COLOR) != 0) {
+                final int value = this.buffer.readMedium() & 0xFFFFFF;
+                final @Nullable NamedTextColor named = NamedTextColor.namedColor(value);
+                builder.color(named != null ? named : TextColor.color(value));
+            }
+            if ((flags & STYLE_FONT) != 0) {
+                builder.font(key(this.string()));
+            }
+            if ((flags & STYLE_INSERTION) != 0) {
+                builder.insertion(this.string());
+            }
+            if ((flags & STYLE_CLICK) != 0) {
+                final ClickEvent.Action action = ClickEvent.Action.NAMES.valueOrThrow(this.string());
+                builder.clickEvent(ClickEvent.clickEvent(action, this.string()));
+            }
+            if ((flags & STYLE_HOVER) != 0) {
+                builder.hoverEvent(this.hover(depth));
+            }
+
+            final Style style = builder.build();
+            this.styles.set(index, style);
+            return style;
+        }
+
+        private HoverEvent<?> hover(final int depth) {
+            final int action = readVarInt(this.buffer);
+            return switch (action) {
+                case HOVER_TEXT -> HoverEvent.showText(this.component(depth + 1));
+                case HOVER_ITEM -> {
+                    final Key item = key(this.string());
+                    final int count = readVarInt(this.buffer);
+                    final @Nullable String nbt = this.nullableString();
+                    yield HoverEvent.showItem(item, count, nbt == null ? null : BinaryTagHolder.binaryTagHolder(nbt));
+                }
+                case HOVER_ENTITY -> {
+                    final Key type = key(this.string());
+                    final UUID id = new UUID(this.buffer.readLong(), this.buffer.readLong());
+                    yield HoverEvent.showEntity(type, id, this.nullableComponent(depth));
+                }
+                default -> throw new IllegalArgumentException("Unknown hover event action " + action);
+            };
+        }
+
+        private @Nullable String nullableString() {
+            return this.buffer.readBoolean() ? this.string() : null;
+        }
+
+        private String string() {
+            final int header = readVarInt(this.buffer);
+            if ((header & 1) != 0) {
+                return this.strings.get(header >>> 1);
+            }
+            final String value = readUtf8(this.buffer, header >>> 1);
+            this.strings.add(value);
+            return value;
+        }
+
+    }
+
+    private static Key key(final @Subst("minecraft:stone") String value) {
+        return Key.key(value);
+    }
+
+    private static String readUtf8(final ByteBuf buffer, final int length) {
+        return buffer.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    private static void writeVarInt(final ByteBuf buffer, final int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            buffer.writeByte(remaining & 0x7F | 0x80);
+            remaining >>>= 7;
+        }
+        buffer.writeByte(remaining);
+    }
+
+    private static int readVarInt(final ByteBuf buffer) {
+        int value = 0;
+        int shift = 0;
+        byte read;
+        do {
+            if (shift >= 35) {
+                throw new IllegalArgumentException("VarInt too long");
+            }
+            read = buffer.readByte();
+            value |= (read & 0x7F) << shift;
+            shift += 7;
+        } while ((read & 0x80) != 0);
+        return value;
+    }
+
+}
@@ -29,22 +29,65 @@ import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import ninja.egg82.messenger.packets.AbstractPacket;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.intellij.lang.annotations.Subst;
 import org.jetbrains.annotations.NotNull;
 
 public abstract class CarbonPacket extends AbstractPacket {
 
+    private final PacketFormat format;
     private final GsonComponentSerializer componentSerializer = GsonComponentSerializer.gson();
 
     protected CarbonPacket(final @NotNull UUID sender) {
         super(sender);
+        this.format = PacketFormat.of(sender);
     }
 
+    /**
+     * Gets the format this packet is written and read in, the format of the server sending it.
+     *
+     * @return packet format
+     */
+    public final PacketFormat format() {
+        return this.format;
+    }
+
+    @Override
+    public final void read(final ByteBuf buffer) {
+        final @Nullable PacketCompression compression = this.format.compression();
+        if (compression == null) {
+            this.readBody(buffer);
+        } else {
+            compression.read(buffer, this::readBody);
+        }
+    }
+
+    @Override
+    public final void write(final ByteBuf buffer) {
+        final @Nullable PacketCompression compression = this.format.compression();
+        if (compression == null) {
+            this.writeBody(buffer);
+        } else {
+            compression.write(this::writeBody, buffer);
+        }
+    }
+
+    protected abstract void readBody(ByteBuf buffer);
+
+    protected abstract void writeBody(ByteBuf buffer);
+
     protected final void writeComponent(final Component component, final ByteBuf buffer) {
-        this.writeString(this.componentSerializer.serialize(component), buffer);
+        if (!this.format.legacy()) {
+            BinaryComponentCodec.write(component, buffer);
+        } else {
+            this.writeString(this.componentSerializer.serialize(component), buffer);
+        }
     }
 
     protected final Component readComponent(final ByteBuf buffer) {
+        if (BinaryComponentCodec.isBinary(buffer)) {
+            return BinaryComponentCodec.read(buffer);
+        }
         return this.componentSerializer.deserialize(this.readString(buffer));
     }
 
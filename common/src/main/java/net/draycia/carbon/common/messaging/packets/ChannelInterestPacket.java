@@ -0,0 +1,83 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging.packets;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import io.netty.buffer.ByteBuf;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import net.draycia.carbon.common.messaging.ServerId;
+import net.kyori.adventure.key.Key;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Announces the channels that have at least one listener on the sending server, replacing its previous announcement.
+ */
+@DefaultQualifier(NonNull.class)
+public final class ChannelInterestPacket extends CarbonPacket {
+
+    private @MonotonicNonNull Set<Key> channels;
+
+    @AssistedInject
+    public ChannelInterestPacket(final @ServerId UUID serverId, final @Assisted Set<Key> channels) {
+        super(serverId);
+        this.channels = channels;
+    }
+
+    public ChannelInterestPacket(final UUID sender, final ByteBuf data) {
+        super(sender);
+        this.read(data);
+    }
+
+    public Set<Key> channels() {
+        return this.channels;
+    }
+
+    @Override
+    protected void readBody(final ByteBuf buffer) {
+        final int size = this.readVarInt(buffer);
+        final Set<Key> channels = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            channels.add(this.readKey(buffer));
+        }
+        this.channels = Set.copyOf(channels);
+    }
+
+    @Override
+    protected void writeBody(final ByteBuf buffer) {
+        this.writeVarInt(this.channels.size(), buffer);
+        for (final Key channel : this.channels) {
+            this.writeKey(channel, buffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelInterestPacket{" +
+            "channels=" + this.channels +
+            ", sender=" + this.sender +
+            '}';
+    }
+
+}
@@ -20,25 +20,43 @@
 package net.draycia.carbon.common.messaging.packets;
 
 import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import ninja.egg82.messenger.utils.UUIDUtil;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jetbrains.annotations.NotNull;
 
 public final class ChatMessagePacket extends CarbonPacket {
 
+    private static final int MUTED = 1;
+    private static final int DEAFENED = 1 << 1;
+    private static final int VANISHED = 1 << 2;
+    private static final int IN_PARTY = 1 << 3;
+
     // TODO: store item link placeholder components
     private UUID userId;
+    private String username;
+    private @Nullable SenderSnapshot snapshot;
     private String channelPermission;
     private Key channelKey;
-    private String username;
     private Component message;
 
     public UUID userId() {
         return this.userId;
     }
 
+    /**
+     * Gets the snapshot of the sender, taken on the origin server.
+     *
+     * @return sender snapshot, or null when sent in the legacy format
+     */
+    public @Nullable SenderSnapshot snapshot() {
+        return this.snapshot;
+    }
+
     public String channelPermission() {
         return this.channelPermission;
     }
@@ -66,36 +84,79 @@ public final class ChatMessagePacket extends CarbonPacket {
 
     public ChatMessagePacket(
         final @NotNull UUID serverId,
-        final UUID userId,
+        final SenderSnapshot snapshot,
         final String channelPermission,
         final Key channelKey,
-        final String username,
         final Component message
     ) {
         super(serverId);
-        this.userId = userId;
+        this.userId = snapshot.id();
+        this.username = snapshot.username();
+        this.snapshot = snapshot;
         this.channelPermission = channelPermission;
         this.channelKey = channelKey;
-        this.username = username;
         this.message = message;
     }
 
     @Override
-    public void read(final io.netty.buffer.@NotNull ByteBuf buffer) {
+    protected void readBody(final io.netty.buffer.@NotNull ByteBuf buffer) {
         this.userId = this.readUUID(buffer);
         this.channelPermission = this.readString(buffer);
         this.channelKey = this.readKey(buffer);
         this.username = this.readString(buffer);
         this.message = this.readComponent(buffer);
+        if (this.format().legacy()) {
+            return;
+        }
+
+        final int flags = buffer.readUnsignedByte();
+        final Component displayName = this.readComponent(buffer);
+        final String primaryGroup = this.readString(buffer);
+        final int groupCount = this.readVarInt(buffer);
+        final List<String> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(this.readString(buffer));
+        }
+        final @Nullable UUID partyId = (flags & IN_PARTY) != 0 ? this.readUUID(buffer) : null;
+        this.snapshot = new SenderSnapshot(this.userId, this.username, displayName, primaryGroup, List.copyOf(groups), partyId,
+            (flags & MUTED) != 0, (flags & DEAFENED) != 0, (flags & VANISHED) != 0);
     }
 
     @Override
-    public void write(final io.netty.buffer.@NotNull ByteBuf buffer) {
+    protected void writeBody(final io.netty.buffer.@NotNull ByteBuf buffer) {
         this.writeUUID(this.userId, buffer);
         this.writeString(this.channelPermission, buffer);
         this.writeKey(this.channelKey, buffer);
         this.writeString(this.username, buffer);
         this.writeComponent(this.message, buffer);
+        // Older versions stop reading after the message, their receivers load the sender themselves
+        if (this.format().legacy()) {
+            return;
+        }
+
+        int flags = 0;
+        if (this.snapshot.muted()) {
+            flags |= MUTED;
+        }
+        if (this.snapshot.deafened()) {
+            flags |= DEAFENED;
+        }
+        if (this.snapshot.vanished()) {
+            flags |= VANISHED;
+        }
+        if (this.snapshot.partyId() != null) {
+            flags |= IN_PARTY;
+        }
+        buffer.writeByte(flags);
+        this.writeComponent(this.snapshot.displayName(), buffer);
+        this.writeString(this.snapshot.primaryGroup(), buffer);
+        this.writeVarInt(this.snapshot.groups().size(), buffer);
+        for (final String group : this.snapshot.groups()) {
+            this.writeString(group, buffer);
+        }
+        if (this.snapshot.partyId() != null) {
+            this.writeUUID(this.snapshot.partyId(), buffer);
+        }
     }
 
 }
@@ -52,12 +52,12 @@ public final class DisbandPartyPacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.partyId = this.readUUID(buffer);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.partyId, buffer);
     }
 
@@ -59,13 +59,13 @@ public final class InvalidatePartyInvitePacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.from = this.readUUID(buffer);
         this.to = this.readUUID(buffer);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.from, buffer);
         this.writeUUID(this.to, buffer);
     }
@@ -32,6 +32,7 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 @DefaultQualifier(NonNull.class)
 public final class LocalPlayerChangePacket extends CarbonPacket {
 
+    private long sequence;
     private @MonotonicNonNull UUID playerId;
     private @MonotonicNonNull String playerName;
     private @MonotonicNonNull ChangeType changeType;
@@ -39,6 +40,7 @@ public final class LocalPlayerChangePacket extends CarbonPacket {
     @AssistedInject
     public LocalPlayerChangePacket(
         final @ServerId UUID serverId,
+        final @Assisted long sequence,
         final @Assisted UUID playerId,
         final @Assisted @Nullable String playerName,
         final @Assisted ChangeType changeType
@@ -47,6 +49,7 @@ public final class LocalPlayerChangePacket extends CarbonPacket {
         if (changeType == ChangeType.ADD && playerName == null) {
             throw new IllegalArgumentException("playerName cannot be null for ChangeType.ADD");
         }
+        this.sequence = sequence;
         this.playerId = playerId;
         this.playerName = playerName;
         this.changeType = changeType;
@@ -57,6 +60,16 @@ public final class LocalPlayerChangePacket extends CarbonPacket {
         this.read(data);
     }
 
+    /**
+     * Gets the roster sequence of this change. Each change increments the sequence of the sending server by one.
+     * Packets in the legacy format carry no sequence.
+     *
+     * @return roster sequence, 0 in the legacy format
+     */
+    public long sequence() {
+        return this.sequence;
+    }
+
     public UUID playerId() {
         return this.playerId;
     }
@@ -70,7 +83,10 @@ public final class LocalPlayerChangePacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
+        if (!this.format().legacy()) {
+            this.sequence = buffer.readLong();
+        }
         this.playerId = this.readUUID(buffer);
         final String type = this.readString(buffer);
         this.changeType = ChangeType.valueOf(type);
@@ -80,7 +96,11 @@ public final class LocalPlayerChangePacket extends CarbonPacket {
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
+        // Older versions read the player id right away
+        if (!this.format().legacy()) {
+            buffer.writeLong(this.sequence);
+        }
         this.writeUUID(this.playerId, buffer);
         this.writeString(this.changeType.name(), buffer);
         if (this.changeType == ChangeType.ADD) {
@@ -32,14 +32,17 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 @DefaultQualifier(NonNull.class)
 public final class LocalPlayersPacket extends CarbonPacket {
 
+    private long sequence;
     private @MonotonicNonNull Map<UUID, String> players;
 
     @AssistedInject
     public LocalPlayersPacket(
         final @ServerId UUID serverId,
+        final @Assisted long sequence,
         final @Assisted Map<UUID, String> players
     ) {
         super(serverId);
+        this.sequence = sequence;
         this.players = players;
     }
 
@@ -48,17 +51,33 @@ public final class LocalPlayersPacket extends CarbonPacket {
         this.read(data);
     }
 
+    /**
+     * Gets the roster sequence this roster is current as of. Packets in the legacy format carry no sequence.
+     *
+     * @return roster sequence, 0 in the legacy format
+     */
+    public long sequence() {
+        return this.sequence;
+    }
+
     public Map<UUID, String> players() {
         return this.players;
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
+        if (!this.format().legacy()) {
+            this.sequence = buffer.readLong();
+        }
         this.players = this.readMap(buffer, this::readUUID, this::readString);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
+        // Older versions read the roster right away
+        if (!this.format().legacy()) {
+            buffer.writeLong(this.sequence);
+        }
         this.writeMap(this.players, this::writeUUID, this::writeString, buffer);
     }
 
@@ -0,0 +1,217 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging.packets;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import net.draycia.carbon.common.metrics.Histogram;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Frames packet bodies so that bodies above a size threshold are sent zstd compressed.
+ *
+ * <p>Every framed body starts with a marker byte. Raw bodies follow it unchanged, compressed bodies are written as
+ * the uncompressed length, the compressed length and the zstd frame. Both sides compress against the bundled
+ * dictionary, so changing its content requires a new messaging protocol version. The dictionary is trained on the
+ * chat traffic of the cluster simulation with the {@code compressionBenchmark} task.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class PacketCompression {
+
+    private static final String DICTIONARY = "/messaging/packet-compression.dict";
+    private static final int LEVEL = 3;
+    private static final int MAX_BODY_LENGTH = 8 * 1024 * 1024;
+    private static final byte RAW = 0;
+    private static final byte ZSTD = 1;
+
+    private final int threshold;
+    private final ZstdDictCompress compressDictionary;
+    private final ZstdDictDecompress decompressDictionary;
+    private final Histogram packetSizes;
+
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder compressedPackets = new LongAdder();
+    private final LongAdder bodyBytes = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * Creates a new packet compression using the bundled dictionary.
+     *
+     * @param threshold minimum body size in bytes to compress, or a negative value to never compress
+     */
+    public PacketCompression(final int threshold) {
+        this(threshold, Histogram.NOOP);
+    }
+
+    /**
+     * Creates a new packet compression using the bundled dictionary.
+     *
+     * @param threshold   minimum body size in bytes to compress, or a negative value to never compress
+     * @param packetSizes receives the framed size of every body written
+     */
+    public PacketCompression(final int threshold, final Histogram packetSizes) {
+        this.threshold = threshold;
+        this.packetSizes = packetSizes;
+        final byte[] dictionary = loadDictionary();
+        this.compressDictionary = new ZstdDictCompress(dictionary, LEVEL);
+        this.decompressDictionary = new ZstdDictDecompress(dictionary);
+    }
+
+    private static byte[] loadDictionary() {
+        try (final InputStream stream = Objects.requireNonNull(PacketCompression.class.getResourceAsStream(DICTIONARY), DICTIONARY)) {
+            return stream.readAllBytes();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Failed to load packet compression dictionary", ex);
+        }
+    }
+
+    void write(final Consumer<ByteBuf> body, final ByteBuf buffer) {
+        final ByteBuf raw = Unpooled.buffer();
+        try {
+            body.accept(raw);
+            final int length = raw.readableBytes();
+            final int start = buffer.writerIndex();
+            this.packets.increment();
+            this.bodyBytes.add(length);
+
+            if (this.threshold < 0 || length < this.threshold) {
+                buffer.writeByte(RAW);
+                buffer.writeBytes(raw);
+                this.wireBytes.add(buffer.writerIndex() - start);
+                this.packetSizes.record(buffer.writerIndex() - start);
+                return;
+            }
+
+            final long compressStart = System.nanoTime();
+            final byte[] compressed = Zstd.compress(ByteBufUtil.getBytes(raw), this.compressDictionary);
+            this.compressNanos.add(System.nanoTime() - compressStart);
+
+            // Incompressible bodies (mostly ids) are cheaper to read raw
+            if (compressed.length >= length) {
+                buffer.writeByte(RAW);
+                buffer.writeBytes(raw);
+            } else {
+                buffer.writeByte(ZSTD);
+                writeVarInt(buffer, length);
+                writeVarInt(buffer, compressed.length);
+                buffer.writeBytes(compressed);
+                this.compressedPackets.increment();
+            }
+            this.wireBytes.add(buffer.writerIndex() - start);
+            this.packetSizes.record(buffer.writerIndex() - start);
+        } finally {
+            raw.release();
+        }
+    }
+
+    void read(final ByteBuf buffer, final Consumer<ByteBuf> body) {
+        final byte marker = buffer.readByte();
+        if (marker == RAW) {
+            body.accept(buffer);
+            return;
+        } else if (marker != ZSTD) {
+            throw new IllegalArgumentException("Unknown packet body marker " + marker);
+        }
+
+        final int length = readVarInt(buffer);
+        final int compressedLength = readVarInt(buffer);
+        if (length < 0 || length > MAX_BODY_LENGTH || compressedLength < 0 || compressedLength > buffer.readableBytes()) {
+            throw new IllegalArgumentException("Invalid compressed packet body (" + compressedLength + " -> " + length + " bytes)");
+        }
+        final byte[] compressed = new byte[compressedLength];
+        buffer.readBytes(compressed);
+
+        final long start = System.nanoTime();
+        final byte[] decompressed = Zstd.decompress(compressed, this.decompressDictionary, length);
+        this.decompressNanos.add(System.nanoTime() - start);
+
+        body.accept(Unpooled.wrappedBuffer(decompressed));
+    }
+
+    public Stats stats() {
+        return new Stats(
+            this.packets.sum(),
+            this.compressedPackets.sum(),
+            this.bodyBytes.sum(),
+            this.wireBytes.sum(),
+            this.compressNanos.sum(),
+            this.decompressNanos.sum()
+        );
+    }
+
+    private static void writeVarInt(final ByteBuf buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.writeByte(value);
+    }
+
+    private static int readVarInt(final ByteBuf buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = buffer.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VarInt too long");
+    }
+
+    /**
+     * Totals of everything written through a {@link PacketCompression} since startup.
+     *
+     * @param packets           packets written
+     * @param compressedPackets packets sent compressed
+     * @param bodyBytes         body bytes before framing
+     * @param wireBytes         body bytes after framing and compression
+     * @param compressNanos     time spent compressing
+     * @param decompressNanos   time spent decompressing received packets
+     */
+    public record Stats(
+        long packets,
+        long compressedPackets,
+        long bodyBytes,
+        long wireBytes,
+        long compressNanos,
+        long decompressNanos
+    ) {
+
+        public double ratio() {
+            return this.bodyBytes == 0 ? 1 : (double) this.wireBytes / this.bodyBytes;
+        }
+
+    }
+
+}
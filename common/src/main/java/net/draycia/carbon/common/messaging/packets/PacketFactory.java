@@ -21,8 +21,10 @@ package net.draycia.carbon.common.messaging.packets;
 
 import com.google.inject.assistedinject.Assisted;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import net.draycia.carbon.common.users.PartyImpl;
+import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -33,21 +35,13 @@ public interface PacketFactory {
 
     SaveCompletedPacket saveCompletedPacket(UUID playerId);
 
-    LocalPlayersPacket localPlayersPacket(Map<UUID, String> players);
+    LocalPlayersPacket localPlayersPacket(long sequence, Map<UUID, String> players);
 
-    default LocalPlayersPacket clearLocalPlayersPacket() {
-        return this.localPlayersPacket(Map.of());
-    }
+    LocalPlayerChangePacket localPlayerChangePacket(long sequence, UUID player, @Nullable String name, LocalPlayerChangePacket.ChangeType type);
 
-    LocalPlayerChangePacket localPlayerChangePacket(UUID player, @Nullable String name, LocalPlayerChangePacket.ChangeType type);
+    RosterVersionPacket rosterVersion(long sequence);
 
-    default LocalPlayerChangePacket addLocalPlayerPacket(final UUID id, final String name) {
-        return this.localPlayerChangePacket(id, name, LocalPlayerChangePacket.ChangeType.ADD);
-    }
-
-    default LocalPlayerChangePacket removeLocalPlayerPacket(final UUID id) {
-        return this.localPlayerChangePacket(id, null, LocalPlayerChangePacket.ChangeType.REMOVE);
-    }
+    RosterRequestPacket rosterRequest(UUID target);
 
     WhisperPacket whisperPacket(@Assisted("from") UUID from, @Assisted("to") UUID to, Component msg);
 
@@ -59,4 +53,6 @@ public interface PacketFactory {
 
     DisbandPartyPacket disbandParty(UUID party);
 
+    ChannelInterestPacket channelInterest(Set<Key> channels);
+
 }
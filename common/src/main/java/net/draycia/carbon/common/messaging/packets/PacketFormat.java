@@ -0,0 +1,102 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging.packets;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * How the bodies of Carbon packets are encoded by a messaging manager.
+ *
+ * <p>Every messaging manager registers its format under its server id while it is connected. Packets take the
+ * format of the server that sent them, both when created to be sent and when read from the broker, so servers in
+ * the same JVM may use different formats, and nothing is left behind once a manager shuts down. Packets of servers
+ * in other JVMs are read in the format of the servers in this one, which every server on the network shares.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class PacketFormat {
+
+    /**
+     * The format of older versions of Carbon, with components as JSON, no compression framing, and none of the
+     * fields added since.
+     */
+    public static final PacketFormat LEGACY = new PacketFormat(null);
+
+    private static final Map<UUID, PacketFormat> SERVERS = new ConcurrentHashMap<>();
+
+    private final @Nullable PacketCompression compression;
+
+    private PacketFormat(final @Nullable PacketCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Creates the current format, with binary components and framed bodies.
+     *
+     * @param compression compression for framed bodies
+     * @return packet format
+     */
+    public static PacketFormat current(final PacketCompression compression) {
+        return new PacketFormat(compression);
+    }
+
+    /**
+     * Registers the format packets sent by a server in this JVM are written and read in.
+     *
+     * @param serverId server id
+     * @param format   packet format of the server
+     */
+    public static void register(final UUID serverId, final PacketFormat format) {
+        SERVERS.put(serverId, format);
+    }
+
+    /**
+     * Removes the format of a server in this JVM, once its messaging manager shuts down.
+     *
+     * @param serverId server id
+     * @param format   packet format registered for the server
+     */
+    public static void unregister(final UUID serverId, final PacketFormat format) {
+        SERVERS.remove(serverId, format);
+    }
+
+    static PacketFormat of(final UUID sender) {
+        final @Nullable PacketFormat format = SERVERS.get(sender);
+        if (format != null) {
+            return format;
+        }
+        final Iterator<PacketFormat> local = SERVERS.values().iterator();
+        return local.hasNext() ? local.next() : LEGACY;
+    }
+
+    public boolean legacy() {
+        return this.compression == null;
+    }
+
+    @Nullable PacketCompression compression() {
+        return this.compression;
+    }
+
+}
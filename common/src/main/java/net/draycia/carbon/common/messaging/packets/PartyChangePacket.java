@@ -61,13 +61,13 @@ public final class PartyChangePacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.partyId = this.readUUID(buffer);
         this.changes = this.readMap(buffer, this::readUUID, buf -> this.readEnum(buf, PartyImpl.ChangeType.class));
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.partyId, buffer);
         this.writeMap(this.changes, this::writeUUID, this::writeEnum, buffer);
     }
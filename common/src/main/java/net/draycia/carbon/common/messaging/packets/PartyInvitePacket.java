@@ -66,14 +66,14 @@ public final class PartyInvitePacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.from = this.readUUID(buffer);
         this.to = this.readUUID(buffer);
         this.party = this.readUUID(buffer);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.from, buffer);
         this.writeUUID(this.to, buffer);
         this.writeUUID(this.party, buffer);
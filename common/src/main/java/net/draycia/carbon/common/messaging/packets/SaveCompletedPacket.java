@@ -49,12 +49,12 @@ public final class SaveCompletedPacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.player = this.readUUID(buffer);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.player, buffer);
     }
 
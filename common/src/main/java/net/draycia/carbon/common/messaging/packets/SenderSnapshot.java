@@ -0,0 +1,72 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging.packets;
+
+import java.util.List;
+import java.util.UUID;
+import net.draycia.carbon.api.users.CarbonPlayer;
+import net.draycia.carbon.common.users.WrappedCarbonPlayer;
+import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * What receiving servers need to know about the sender of a cross-server message, so they can render it
+ * without loading the sender from storage.
+ *
+ * @param id           player id
+ * @param username     username
+ * @param displayName  display name, as rendered on the origin server
+ * @param primaryGroup primary permission group
+ * @param groups       inherited permission groups
+ * @param partyId      party id, if in a party
+ * @param muted        whether the player is muted
+ * @param deafened     whether the player is deafened
+ * @param vanished     whether the player is vanished
+ */
+@DefaultQualifier(NonNull.class)
+public record SenderSnapshot(
+    UUID id,
+    String username,
+    Component displayName,
+    String primaryGroup,
+    List<String> groups,
+    @Nullable UUID partyId,
+    boolean muted,
+    boolean deafened,
+    boolean vanished
+) {
+
+    public static SenderSnapshot of(final CarbonPlayer player) {
+        return new SenderSnapshot(
+            player.uuid(),
+            player.username(),
+            player.displayName(),
+            player.primaryGroup(),
+            List.copyOf(player.groups()),
+            player instanceof WrappedCarbonPlayer wrapped ? wrapped.partyId() : null,
+            player.muted(),
+            player.deafened(),
+            player.vanished()
+        );
+    }
+
+}
@@ -67,14 +67,14 @@ public final class WhisperPacket extends CarbonPacket {
     }
 
     @Override
-    public void read(final ByteBuf buffer) {
+    protected void readBody(final ByteBuf buffer) {
         this.from = this.readUUID(buffer);
         this.to = this.readUUID(buffer);
         this.message = this.readComponent(buffer);
     }
 
     @Override
-    public void write(final ByteBuf buffer) {
+    protected void writeBody(final ByteBuf buffer) {
         this.writeUUID(this.from, buffer);
         this.writeUUID(this.to, buffer);
         this.writeComponent(this.message, buffer);
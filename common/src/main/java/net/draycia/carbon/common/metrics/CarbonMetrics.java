@@ -0,0 +1,161 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import net.draycia.carbon.common.config.ConfigManager;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Registry of Carbon's runtime metrics.
+ *
+ * <p>Metrics are named and typed like Prometheus metrics, with at most one label. While metrics are disabled in the
+ * config nothing is registered, and the counters and histograms handed out are shared no-op instances, so
+ * instrumented code costs a field read. Enabling metrics requires a restart.</p>
+ *
+ * <p>Counters and histograms with the same name and label are the same instance. Gauges and function counters
+ * are sampled when metrics are read, registering one that already exists keeps the existing one.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class CarbonMetrics {
+
+    private static final String NO_LABELS = "";
+
+    private final boolean enabled;
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    @Inject
+    private CarbonMetrics(final ConfigManager configManager) {
+        this.enabled = configManager.primaryConfig().metrics().enabled();
+    }
+
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    public Counter counter(final String name, final String help) {
+        return this.counter(name, help, NO_LABELS);
+    }
+
+    public Counter counter(final String name, final String help, final String label, final String value) {
+        if (!this.enabled) {
+            return Counter.NOOP;
+        }
+        return this.counter(name, help, labels(label, value));
+    }
+
+    private Counter counter(final String name, final String help, final String labels) {
+        if (!this.enabled) {
+            return Counter.NOOP;
+        }
+        final Object series = this.family(name, help, Type.COUNTER).series.computeIfAbsent(labels, $ -> new Counter(true));
+        if (!(series instanceof Counter counter)) {
+            throw new IllegalArgumentException("Metric " + name + " is a function counter");
+        }
+        return counter;
+    }
+
+    /**
+     * Registers a counter whose value is kept elsewhere, like the totals a component already tracks for its own logs.
+     *
+     * @param name  metric name
+     * @param help  metric description
+     * @param value current total
+     */
+    public void counter(final String name, final String help, final LongSupplier value) {
+        if (this.enabled) {
+            this.family(name, help, Type.COUNTER).series.putIfAbsent(NO_LABELS, value);
+        }
+    }
+
+    public Histogram histogram(final String name, final String help, final Histogram.Unit unit) {
+        return this.histogram(name, help, unit, NO_LABELS);
+    }
+
+    public Histogram histogram(final String name, final String help, final Histogram.Unit unit, final String label, final String value) {
+        if (!this.enabled) {
+            return Histogram.NOOP;
+        }
+        return this.histogram(name, help, unit, labels(label, value));
+    }
+
+    private Histogram histogram(final String name, final String help, final Histogram.Unit unit, final String labels) {
+        if (!this.enabled) {
+            return Histogram.NOOP;
+        }
+        return (Histogram) this.family(name, help, Type.HISTOGRAM).series.computeIfAbsent(labels, $ -> new Histogram(true, unit));
+    }
+
+    public void gauge(final String name, final String help, final DoubleSupplier value) {
+        if (this.enabled) {
+            this.family(name, help, Type.GAUGE).series.putIfAbsent(NO_LABELS, value);
+        }
+    }
+
+    public void gauge(final String name, final String help, final String label, final String labelValue, final DoubleSupplier value) {
+        if (this.enabled) {
+            this.family(name, help, Type.GAUGE).series.putIfAbsent(labels(label, labelValue), value);
+        }
+    }
+
+    List<Family> families() {
+        return this.families.values().stream().sorted(Comparator.comparing(Family::name)).toList();
+    }
+
+    private Family family(final String name, final String help, final Type type) {
+        final Family family = this.families.computeIfAbsent(name, $ -> new Family(name, help, type, new ConcurrentHashMap<>()));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labels(final String label, final String value) {
+        return label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    /**
+     * All series of one metric.
+     *
+     * @param name   metric name
+     * @param help   metric description
+     * @param type   metric type
+     * @param series series by rendered label, {@link Counter}s or {@link LongSupplier}s for counters,
+     *               {@link DoubleSupplier}s for gauges and {@link Histogram}s for histograms
+     */
+    record Family(String name, String help, Type type, Map<String, Object> series) {
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * A monotonically increasing count, see {@link CarbonMetrics#counter(String, String)}.
+ */
+@DefaultQualifier(NonNull.class)
+public final class Counter {
+
+    /**
+     * Counter that ignores everything, handed out while metrics are disabled.
+     */
+    public static final Counter NOOP = new Counter(false);
+
+    private final boolean enabled;
+    private final LongAdder value = new LongAdder();
+
+    Counter(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void increment() {
+        if (this.enabled) {
+            this.value.increment();
+        }
+    }
+
+    public void add(final long amount) {
+        if (this.enabled) {
+            this.value.add(amount);
+        }
+    }
+
+    public long value() {
+        return this.value.sum();
+    }
+
+}
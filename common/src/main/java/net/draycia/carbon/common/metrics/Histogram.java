@@ -0,0 +1,164 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Distribution of non-negative values, see {@link CarbonMetrics#histogram(String, String, Unit)}.
+ *
+ * <p>Values are counted in log-linear buckets like an HDR histogram: every power of two is split into
+ * eight equal buckets, so percentiles are within 12.5% of the recorded value at any magnitude,
+ * and recording is a single atomic increment without locks or allocation.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class Histogram {
+
+    /**
+     * Histogram that ignores everything, handed out while metrics are disabled.
+     */
+    public static final Histogram NOOP = new Histogram(false, Unit.NANOSECONDS);
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (62 - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final boolean enabled;
+    private final Unit unit;
+    private final AtomicLongArray buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(final boolean enabled, final Unit unit) {
+        this.enabled = enabled;
+        this.unit = unit;
+        this.buckets = new AtomicLongArray(enabled ? BUCKETS : 0);
+    }
+
+    public void record(final long value) {
+        if (!this.enabled) {
+            return;
+        }
+        final long clamped = Math.max(0, value);
+        this.buckets.incrementAndGet(bucket(clamped));
+        this.count.increment();
+        this.sum.add(clamped);
+        this.max.accumulate(clamped);
+    }
+
+    /**
+     * Records the time passed since {@code startNanos}, a value of {@link System#nanoTime()}.
+     *
+     * @param startNanos start time
+     */
+    public void recordSince(final long startNanos) {
+        if (this.enabled) {
+            this.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public Unit unit() {
+        return this.unit;
+    }
+
+    public Snapshot snapshot() {
+        final long[] counts = new long[this.buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets.get(i);
+        }
+        return new Snapshot(counts, this.count.sum(), this.sum.sum(), this.max.get());
+    }
+
+    // Values below SUB_BUCKETS get a bucket each, above that each power of two gets SUB_BUCKETS buckets
+    private static int bucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * What a histogram's values measure.
+     */
+    public enum Unit {
+        /**
+         * Durations, exported in seconds.
+         */
+        NANOSECONDS,
+        /**
+         * Sizes, exported as they are.
+         */
+        BYTES
+    }
+
+    /**
+     * Point in time copy of a histogram.
+     *
+     * @param buckets counts per bucket
+     * @param count   values recorded
+     * @param sum     sum of all values
+     * @param max     largest value
+     */
+    public record Snapshot(long[] buckets, long count, long sum, long max) {
+
+        public double mean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        /**
+         * Estimates a percentile.
+         *
+         * @param quantile between 0 and 1
+         * @return the upper bound of the bucket holding the percentile, at most {@link #max()}
+         */
+        public long percentile(final double quantile) {
+            if (this.count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * this.count));
+            long seen = 0;
+            for (int i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), this.max);
+                }
+            }
+            return this.max;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.draycia.carbon.common.DataDirectory;
+import net.draycia.carbon.common.PeriodicTasks;
+import net.draycia.carbon.common.config.ConfigManager;
+import net.draycia.carbon.common.config.MetricsSettings;
+import net.draycia.carbon.common.util.FileUtil;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Publishes {@link CarbonMetrics} in the Prometheus text format, over HTTP on a local port and/or by rewriting a file
+ * on an interval, as configured in {@link MetricsSettings}.
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class MetricsExporter {
+
+    private final CarbonMetrics metrics;
+    private final ConfigManager configManager;
+    private final Logger logger;
+    private final Path dataDirectory;
+    private final ScheduledExecutorService periodicTasks;
+    private @Nullable HttpServer server;
+
+    @Inject
+    private MetricsExporter(
+        final CarbonMetrics metrics,
+        final ConfigManager configManager,
+        final Logger logger,
+        final @DataDirectory Path dataDirectory,
+        final @PeriodicTasks ScheduledExecutorService periodicTasks
+    ) {
+        this.metrics = metrics;
+        this.configManager = configManager;
+        this.logger = logger;
+        this.dataDirectory = dataDirectory;
+        this.periodicTasks = periodicTasks;
+    }
+
+    public void start() {
+        if (!this.metrics.enabled()) {
+            return;
+        }
+        final MetricsSettings settings = this.configManager.primaryConfig().metrics();
+
+        if (settings.prometheusPort() > 0) {
+            this.startServer(settings.prometheusBindAddress(), settings.prometheusPort());
+        }
+
+        if (!settings.prometheusFile().isBlank()) {
+            final Path file = this.dataDirectory.resolve(settings.prometheusFile());
+            final long interval = Math.max(1, settings.prometheusFileIntervalSeconds());
+            this.periodicTasks.scheduleAtFixedRate(() -> this.writeFile(file), interval, interval, TimeUnit.SECONDS);
+            this.logger.info("Writing metrics to {} every {} seconds", file, interval);
+        }
+    }
+
+    private void startServer(final String address, final int port) {
+        try {
+            final HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+            server.createContext("/metrics", exchange -> {
+                try {
+                    final byte[] body = MetricsFormat.prometheus(this.metrics).getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (final OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } finally {
+                    exchange.close();
+                }
+            });
+            server.start();
+            this.server = server;
+            this.logger.info("Serving metrics on http://{}:{}/metrics", address, port);
+        } catch (final IOException | LinkageError ex) {
+            // LinkageError when the runtime was built without the jdk.httpserver module
+            this.logger.warn("Failed to start the metrics endpoint on {}:{}", address, port, ex);
+        }
+    }
+
+    private void writeFile(final Path file) {
+        try {
+            FileUtil.writeAtomically(FileUtil.mkParentDirs(file), MetricsFormat.prometheus(this.metrics));
+        } catch (final IOException ex) {
+            this.logger.warn("Failed to write metrics to {}", file, ex);
+        }
+    }
+
+    public void shutdown() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.server = null;
+        }
+    }
+
+}
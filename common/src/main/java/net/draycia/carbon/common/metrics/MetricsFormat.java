@@ -0,0 +1,150 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Renders the metrics of a {@link CarbonMetrics} registry.
+ */
+@DefaultQualifier(NonNull.class)
+public final class MetricsFormat {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private MetricsFormat() {
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format. Histograms are exported as summaries.
+     *
+     * @param metrics registry
+     * @return metrics text
+     */
+    public static String prometheus(final CarbonMetrics metrics) {
+        final StringBuilder out = new StringBuilder();
+        for (final CarbonMetrics.Family family : metrics.families()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help().replace("\n", " ")).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ')
+                .append(family.type() == CarbonMetrics.Type.HISTOGRAM ? "summary" : family.type().name().toLowerCase(Locale.ROOT)).append('\n');
+
+            for (final Map.Entry<String, Object> series : sorted(family)) {
+                final String labels = series.getKey();
+                if (series.getValue() instanceof Histogram histogram) {
+                    final Histogram.Snapshot snapshot = histogram.snapshot();
+                    for (final double quantile : QUANTILES) {
+                        final String quantileLabel = "quantile=\"" + quantile + '"';
+                        sample(out, family.name(), labels.isEmpty() ? quantileLabel : labels + ',' + quantileLabel,
+                            exported(histogram.unit(), snapshot.percentile(quantile)));
+                    }
+                    sample(out, family.name() + "_sum", labels, exported(histogram.unit(), snapshot.sum()));
+                    sample(out, family.name() + "_count", labels, snapshot.count());
+                } else {
+                    sample(out, family.name(), labels, value(series.getValue()));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Renders every series as one human readable line.
+     *
+     * @param metrics registry
+     * @return lines
+     */
+    public static List<Line> summary(final CarbonMetrics metrics) {
+        final List<Line> lines = new ArrayList<>();
+        for (final CarbonMetrics.Family family : metrics.families()) {
+            for (final Map.Entry<String, Object> series : sorted(family)) {
+                final String name = series.getKey().isEmpty() ? family.name() : family.name() + '{' + series.getKey() + '}';
+                if (series.getValue() instanceof Histogram histogram) {
+                    final Histogram.Snapshot snapshot = histogram.snapshot();
+                    lines.add(new Line(name, "count=%d mean=%s p50=%s p99=%s max=%s".formatted(
+                        snapshot.count(),
+                        readable(histogram.unit(), snapshot.mean()),
+                        readable(histogram.unit(), snapshot.percentile(0.5)),
+                        readable(histogram.unit(), snapshot.percentile(0.99)),
+                        readable(histogram.unit(), snapshot.max())
+                    )));
+                } else {
+                    lines.add(new Line(name, number(value(series.getValue()))));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static Iterable<Map.Entry<String, Object>> sorted(final CarbonMetrics.Family family) {
+        return new TreeMap<>(family.series()).entrySet();
+    }
+
+    private static double value(final Object series) {
+        if (series instanceof Counter counter) {
+            return counter.value();
+        } else if (series instanceof LongSupplier supplier) {
+            return supplier.getAsLong();
+        }
+        return ((DoubleSupplier) series).getAsDouble();
+    }
+
+    private static double exported(final Histogram.Unit unit, final double value) {
+        return unit == Histogram.Unit.NANOSECONDS ? value / 1e9 : value;
+    }
+
+    private static String readable(final Histogram.Unit unit, final double value) {
+        return unit == Histogram.Unit.NANOSECONDS
+            ? String.format(Locale.ROOT, "%.2fms", value / 1e6)
+            : number(value) + 'B';
+    }
+
+    private static void sample(final StringBuilder out, final String name, final String labels, final double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(number(value)).append('\n');
+    }
+
+    private static String number(final double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * A series and its current value.
+     *
+     * @param metric series name with labels
+     * @param value  formatted value
+     */
+    public record Line(String metric, String value) {
+    }
+
+}
@@ -27,10 +27,11 @@ import java.lang.annotation.Target;
 import net.draycia.carbon.api.users.UserManager;
 import net.draycia.carbon.common.users.db.DatabaseUserManager;
 import net.draycia.carbon.common.users.json.JSONUserManager;
+import net.draycia.carbon.common.users.mvstore.MVStoreUserManager;
 
 /**
  * Injection binding annotation for the backing {@link UserManagerInternal}
- * (i.e. {@link JSONUserManager} or {@link DatabaseUserManager}),
+ * (i.e. {@link JSONUserManager}, {@link MVStoreUserManager} or {@link DatabaseUserManager}),
  * with the generic type of {@link CarbonPlayerCommon}.
  *
  * <p>Injecting {@link UserManagerInternal} or {@link UserManager} with a generic type of {@literal ?}, without this annotation,
@@ -22,14 +22,17 @@ package net.draycia.carbon.common.users;
 import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.Lists;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -42,10 +45,14 @@ import java.util.stream.Collectors;
 import net.draycia.carbon.api.CarbonServer;
 import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.api.users.Party;
+import net.draycia.carbon.common.messaging.LocalRoster;
 import net.draycia.carbon.common.messaging.MessagingManager;
 import net.draycia.carbon.common.messaging.packets.DisbandPartyPacket;
 import net.draycia.carbon.common.messaging.packets.PacketFactory;
 import net.draycia.carbon.common.messaging.packets.PartyChangePacket;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
+import net.draycia.carbon.common.metrics.Counter;
+import net.draycia.carbon.common.metrics.Histogram;
 import net.draycia.carbon.common.users.db.DatabaseUserManager;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import net.kyori.adventure.text.Component;
@@ -72,9 +79,14 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
     private final Map<UUID, CompletableFuture<CarbonPlayerCommon>> cache;
     private final AsyncCache<UUID, Party> partyCache;
     private final List<Runnable> queuedDisbands = new CopyOnWriteArrayList<>();
+    private final Map<UUID, CompletableFuture<Void>> queuedPartySaves = new ConcurrentHashMap<>();
     private final Cache<UUID, Object> recentDisbands = Caffeine.newBuilder()
         .expireAfterWrite(DISBAND_DELAY + 10, TimeUnit.SECONDS)
         .build();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Histogram loadTime;
+    private final Histogram saveTime;
 
     protected CachingUserManager(
         final Logger logger,
@@ -96,6 +108,13 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
         this.server = server;
         this.cacheLock = new ReentrantLock();
         this.cache = new HashMap<>();
+
+        final CarbonMetrics metrics = injector.getInstance(CarbonMetrics.class);
+        this.cacheHits = metrics.counter("carbon_user_cache_requests_total", "User lookups by whether the user was cached", "result", "hit");
+        this.cacheMisses = metrics.counter("carbon_user_cache_requests_total", "User lookups by whether the user was cached", "result", "miss");
+        this.loadTime = metrics.histogram("carbon_storage_load_seconds", "Time to load or create a user in storage", Histogram.Unit.NANOSECONDS);
+        this.saveTime = metrics.histogram("carbon_storage_save_seconds", "Time to save a user to storage", Histogram.Unit.NANOSECONDS);
+        metrics.gauge("carbon_user_cache_size", "Users currently cached", this.cache::size);
     }
 
     protected abstract CarbonPlayerCommon loadOrCreate(UUID uuid);
@@ -108,9 +127,59 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
 
     protected abstract void disbandSync(UUID id);
 
+    /**
+     * Lists the ids of all stored users in pages of at most {@code pageSize}, in a stable backend-defined order,
+     * starting after {@code after} (exclusive) when it is not {@code null}.
+     *
+     * <p>Used to stream data between storage types, see {@link StorageMigration}.</p>
+     *
+     * @param after    last id of the previous page, or {@code null} to start at the beginning
+     * @param pageSize maximum ids per page
+     * @return pages of user ids
+     */
+    protected abstract Iterator<List<UUID>> userIds(@Nullable UUID after, int pageSize);
+
+    /**
+     * Lists the ids of all stored parties, see {@link #userIds(UUID, int)}.
+     *
+     * @param after    last id of the previous page, or {@code null} to start at the beginning
+     * @param pageSize maximum ids per page
+     * @return pages of party ids
+     */
+    protected abstract Iterator<List<UUID>> partyIds(@Nullable UUID after, int pageSize);
+
+    protected void saveAllSync(final List<CarbonPlayerCommon> players) {
+        for (final CarbonPlayerCommon player : players) {
+            this.saveSync(player);
+        }
+    }
+
+    protected void saveAllPartiesSync(final List<PartyImpl> parties) {
+        for (final PartyImpl party : parties) {
+            final Map<UUID, PartyImpl.ChangeType> members = new HashMap<>();
+            for (final UUID member : party.rawMembers()) {
+                members.put(member, PartyImpl.ChangeType.ADD);
+            }
+            this.saveSync(party, members);
+        }
+    }
+
+    // Pages an already sorted list of ids
+    protected static Iterator<List<UUID>> pages(final List<UUID> sortedIds, final @Nullable UUID after, final int pageSize) {
+        int start = 0;
+        if (after != null) {
+            while (start < sortedIds.size() && sortedIds.get(start).compareTo(after) <= 0) {
+                start++;
+            }
+        }
+        return Lists.partition(sortedIds.subList(start, sortedIds.size()), pageSize).iterator();
+    }
+
     private CompletableFuture<Void> save(final CarbonPlayerCommon player) {
         return CompletableFuture.runAsync(() -> {
+            final long start = System.nanoTime();
             this.saveSync(player);
+            this.saveTime.recordSince(start);
             player.saved();
             this.messagingManager.get().queuePacketAndFlush(() -> this.packetFactory.saveCompletedPacket(player.uuid()));
         }, this.executor);
@@ -143,9 +212,17 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
     public CompletableFuture<CarbonPlayerCommon> user(final UUID uuid) {
         this.cacheLock.lock();
         try {
+            final @Nullable CompletableFuture<CarbonPlayerCommon> cached = this.cache.get(uuid);
+            if (cached != null) {
+                this.cacheHits.increment();
+                return cached;
+            }
+            this.cacheMisses.increment();
             return this.cache.computeIfAbsent(uuid, $ -> {
                 final CompletableFuture<CarbonPlayerCommon> future = CompletableFuture.supplyAsync(() -> {
+                    final long start = System.nanoTime();
                     final CarbonPlayerCommon player = this.loadOrCreate(uuid);
+                    this.loadTime.recordSince(start);
                     this.injector.injectMembers(player);
                     if (this instanceof DatabaseUserManager) {
                         player.registerPropertyUpdateListener(() ->
@@ -185,7 +262,7 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
 
     @Override
     public CompletableFuture<Void> loggedOut(final UUID uuid) {
-        this.messagingManager.get().queuePacket(() -> this.packetFactory.removeLocalPlayerPacket(uuid));
+        this.injector.getInstance(LocalRoster.class).left(uuid);
         this.cacheLock.lock();
         try {
             final @Nullable CompletableFuture<CarbonPlayerCommon> remove = this.cache.remove(uuid);
@@ -250,14 +327,26 @@ public abstract class CachingUserManager implements UserManagerInternal<CarbonPl
 
     @Override
     public CompletableFuture<Void> saveParty(final PartyImpl info) {
-        return CompletableFuture.runAsync(() -> {
-            final Map<UUID, PartyImpl.ChangeType> changes = info.pollChanges();
-            if (changes.isEmpty()) {
-                return;
+        // Changes made while a save is queued are picked up by that save, so they share one transaction and packet
+        final CompletableFuture<Void> queued = new CompletableFuture<>();
+        final @Nullable CompletableFuture<Void> existing = this.queuedPartySaves.putIfAbsent(info.id(), queued);
+        if (existing != null) {
+            return existing;
+        }
+        this.executor.execute(() -> {
+            this.queuedPartySaves.remove(info.id(), queued);
+            try {
+                final Map<UUID, PartyImpl.ChangeType> changes = info.pollChanges();
+                if (!changes.isEmpty()) {
+                    this.saveSync(info, changes);
+                    this.messagingManager.get().queuePacketAndFlush(() -> this.packetFactory.partyChange(info.id(), changes));
+                }
+                queued.complete(null);
+            } catch (final Throwable thr) {
+                queued.completeExceptionally(thr);
             }
-            this.saveSync(info, changes);
-            this.messagingManager.get().queuePacketAndFlush(() -> this.packetFactory.partyChange(info.id(), changes));
-        }, this.executor);
+        });
+        return queued;
     }
 
     @Override
@@ -19,7 +19,12 @@
  */
 package net.draycia.carbon.common.users;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
@@ -43,6 +48,7 @@ import net.kyori.adventure.audience.ForwardingAudience;
 import net.kyori.adventure.identity.Identity;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -59,6 +65,8 @@ public class CarbonPlayerCommon implements CarbonPlayer, ForwardingAudience.Sing
     private transient @MonotonicNonNull @Inject ConfigManager config;
     private transient @MonotonicNonNull @Inject CarbonMessageRenderer messageRenderer;
     private transient @MonotonicNonNull @Inject UserManagerInternal<?> users;
+    private transient @MonotonicNonNull @Inject PartyMembers partyMembers;
+    private transient @MonotonicNonNull @Inject IgnoreIndex ignoreIndex;
     private volatile transient long transientLoadedSince = -1;
 
     protected final PersistentUserProperty<Boolean> muted;
@@ -99,6 +107,25 @@ public class CarbonPlayerCommon implements CarbonPlayer, ForwardingAudience.Sing
         final boolean spying,
         final boolean ignoreDirectMessages,
         final @Nullable UUID party
+    ) {
+        this(muted, deafened, selectedChannel, username, uuid, displayName, lastWhisperTarget, whisperReplyTarget,
+            spying, ignoreDirectMessages, party, Set.of(), Set.of());
+    }
+
+    public CarbonPlayerCommon(
+        final boolean muted,
+        final boolean deafened,
+        final @Nullable Key selectedChannel,
+        final @Nullable String username, // will be resolved when requested
+        final UUID uuid,
+        final @Nullable Component displayName,
+        final @Nullable UUID lastWhisperTarget,
+        final @Nullable UUID whisperReplyTarget,
+        final boolean spying,
+        final boolean ignoreDirectMessages,
+        final @Nullable UUID party,
+        final Set<UUID> ignoredPlayers,
+        final Set<Key> leftChannels
     ) {
         this.muted = PersistentUserProperty.of(muted);
         this.deafened = PersistentUserProperty.of(deafened);
@@ -109,8 +136,8 @@ public class CarbonPlayerCommon implements CarbonPlayer, ForwardingAudience.Sing
         this.lastWhisperTarget = lastWhisperTarget;
         this.whisperReplyTarget = whisperReplyTarget;
         this.spying = PersistentUserProperty.of(spying);
-        this.ignoredPlayers = PersistentUserProperty.of(Collections.emptySet());
-        this.leftChannels = PersistentUserProperty.of(Collections.emptySet());
+        this.ignoredPlayers = PersistentUserProperty.of(Collections.unmodifiableSet(ignoredPlayers));
+        this.leftChannels = PersistentUserProperty.of(Collections.unmodifiableSet(leftChannels));
         this.ignoringDirectMessages = PersistentUserProperty.of(ignoreDirectMessages);
         this.party = PersistentUserProperty.of(party);
     }
@@ -249,6 +276,10 @@ public class CarbonPlayerCommon implements CarbonPlayer, ForwardingAudience.Sing
         } else {
             this.ignoredPlayers.set(Collections.unmodifiableSet(newIgnored));
         }
+        // Not injected yet while the storage backend is loading this player
+        if (this.ignoreIndex != null) {
+            this.ignoreIndex.changed(this.uuid, player, nowIgnoring);
+        }
     }
 
     @Override
@@ -501,5 +532,108 @@ public class CarbonPlayerCommon implements CarbonPlayer, ForwardingAudience.Sing
 
     public void party(final @Nullable Party party) {
         this.party.set(party == null ? null : party.id());
+        this.partyMembers.changed(this.uuid, party == null ? null : party.id());
+        if (party != null) {
+            this.partyMembers.loaded(party);
+        }
+    }
+
+    /**
+     * Streaming serializer producing the same document layout as reflective Gson serialization,
+     * without the reflection overhead.
+     */
+    public static final class Serializer extends TypeAdapter<CarbonPlayerCommon> {
+
+        private final TypeAdapter<Component> componentAdapter = GsonComponentSerializer.gson().serializer().getAdapter(Component.class);
+
+        @Override
+        public void write(final JsonWriter out, final @Nullable CarbonPlayerCommon player) throws IOException {
+            if (player == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            out.name("muted").value(player.muted.get());
+            out.name("deafened").value(player.deafened.get());
+            final @Nullable Key selectedChannel = player.selectedChannel.orNull();
+            if (selectedChannel != null) {
+                out.name("selectedChannel").value(selectedChannel.asString());
+            }
+            out.name("uuid").value(player.uuid.toString());
+            final @Nullable Component displayName = player.displayName.orNull();
+            if (displayName != null) {
+                out.name("displayName");
+                this.componentAdapter.write(out, displayName);
+            }
+            out.name("ignoringDirectMessages").value(player.ignoringDirectMessages.get());
+            out.name("spying").value(player.spying.get());
+            out.name("ignoredPlayers").beginArray();
+            for (final UUID ignored : player.ignoredPlayers.get()) {
+                out.value(ignored.toString());
+            }
+            out.endArray();
+            out.name("leftChannels").beginArray();
+            for (final Key channel : player.leftChannels.get()) {
+                out.value(channel.asString());
+            }
+            out.endArray();
+            final @Nullable UUID party = player.party.orNull();
+            if (party != null) {
+                out.name("party").value(party.toString());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public @Nullable CarbonPlayerCommon read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            final CarbonPlayerCommon player = new CarbonPlayerCommon();
+            in.beginObject();
+            while (in.hasNext()) {
+                final String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "muted" -> player.muted.internalSet(in.nextBoolean());
+                    case "deafened" -> player.deafened.internalSet(in.nextBoolean());
+                    case "selectedChannel" -> player.selectedChannel.internalSet(Key.key(in.nextString()));
+                    case "uuid" -> player.uuid = UUID.fromString(in.nextString());
+                    case "displayName" -> player.displayName.internalSet(this.componentAdapter.read(in));
+                    case "ignoringDirectMessages" -> player.ignoringDirectMessages.internalSet(in.nextBoolean());
+                    case "spying" -> player.spying.internalSet(in.nextBoolean());
+                    case "ignoredPlayers" -> {
+                        final Set<UUID> ignored = new HashSet<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            ignored.add(UUID.fromString(in.nextString()));
+                        }
+                        in.endArray();
+                        player.ignoredPlayers.internalSet(Collections.unmodifiableSet(ignored));
+                    }
+                    case "leftChannels" -> {
+                        final Set<Key> left = new HashSet<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            left.add(Key.key(in.nextString()));
+                        }
+                        in.endArray();
+                        player.leftChannels.internalSet(Collections.unmodifiableSet(left));
+                    }
+                    case "party" -> player.party.internalSet(UUID.fromString(in.nextString()));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return player;
+        }
+
     }
+
 }
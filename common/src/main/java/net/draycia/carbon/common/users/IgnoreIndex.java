@@ -0,0 +1,117 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users;
+
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Reverse index of ignores for online players: for each player, which online players ignore them.
+ *
+ * <p>Most senders are ignored by nobody, so recipient filtering can skip the recipient list entirely.
+ * Reads are lock-free, updates are serialized.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class IgnoreIndex {
+
+    private final Map<UUID, Set<UUID>> ignoring = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> ignoredBy = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the ignores of {@code player} when they come online. Does nothing if they are already
+     * indexed, later changes arrive through {@link #changed(UUID, UUID, boolean)}.
+     *
+     * @param player  player id
+     * @param ignored players ignored by {@code player}
+     */
+    public synchronized void online(final UUID player, final Set<UUID> ignored) {
+        if (this.ignoring.containsKey(player)) {
+            return;
+        }
+        final Set<UUID> copy = ConcurrentHashMap.newKeySet();
+        copy.addAll(ignored);
+        this.ignoring.put(player, copy);
+        for (final UUID target : ignored) {
+            this.ignoredBy.computeIfAbsent(target, $ -> ConcurrentHashMap.newKeySet()).add(player);
+        }
+    }
+
+    public synchronized void offline(final UUID player) {
+        final @Nullable Set<UUID> previous = this.ignoring.remove(player);
+        if (previous != null) {
+            for (final UUID target : previous) {
+                this.unlink(target, player);
+            }
+        }
+    }
+
+    /**
+     * Records that {@code player} started or stopped ignoring {@code target}, if {@code player} is online.
+     *
+     * @param player      player whose ignore list changed
+     * @param target      ignored player
+     * @param nowIgnoring whether {@code player} now ignores {@code target}
+     */
+    public synchronized void changed(final UUID player, final UUID target, final boolean nowIgnoring) {
+        final @Nullable Set<UUID> ignored = this.ignoring.get(player);
+        if (ignored == null) {
+            return;
+        }
+        if (nowIgnoring) {
+            ignored.add(target);
+            this.ignoredBy.computeIfAbsent(target, $ -> ConcurrentHashMap.newKeySet()).add(player);
+        } else if (ignored.remove(target)) {
+            this.unlink(target, player);
+        }
+    }
+
+    public boolean indexed(final UUID player) {
+        return this.ignoring.containsKey(player);
+    }
+
+    /**
+     * Gets the online players ignoring {@code target}.
+     *
+     * @param target player id
+     * @return online players ignoring the target, usually empty
+     */
+    public Set<UUID> ignoredBy(final UUID target) {
+        final @Nullable Set<UUID> players = this.ignoredBy.get(target);
+        return players == null ? Set.of() : players;
+    }
+
+    private void unlink(final UUID target, final UUID player) {
+        final @Nullable Set<UUID> players = this.ignoredBy.get(target);
+        if (players != null) {
+            players.remove(player);
+            if (players.isEmpty()) {
+                this.ignoredBy.remove(target);
+            }
+        }
+    }
+
+}
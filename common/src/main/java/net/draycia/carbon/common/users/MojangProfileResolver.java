@@ -28,21 +28,23 @@ import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import net.draycia.carbon.common.config.ConfigManager;
+import net.draycia.carbon.common.config.PrimaryConfig;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import net.draycia.carbon.common.util.FastUuidSansHyphens;
 import org.apache.logging.log4j.Logger;
@@ -53,63 +55,142 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 @DefaultQualifier(NonNull.class)
 public final class MojangProfileResolver implements ProfileResolver {
 
+    // Maximum names accepted by the bulk profiles endpoint
+    private static final int BULK_LIMIT = 10;
+    // Names the bulk endpoint accepts, a single invalid name fails the whole batch
+    private static final Pattern VALID_NAME = Pattern.compile("^[A-Za-z0-9_]{1,16}$");
+
     private final HttpClient client;
     private final Gson gson;
-    private final ExecutorService executorService;
-    private final Map<String, CompletableFuture<@Nullable BasicLookupResponse>> pendingUuidLookups = new HashMap<>();
+    private final ScheduledExecutorService executorService;
+    private final Map<String, CompletableFuture<@Nullable UUID>> pendingUuidLookups = new HashMap<>();
     private final Map<UUID, CompletableFuture<@Nullable BasicLookupResponse>> pendingUsernameLookups = new HashMap<>();
+    private final List<String> queuedUsernames = new ArrayList<>();
     private final ProfileCache cache;
-    private final RateLimiter globalRateLimit;
-    private final RateLimiter uuidToProfileRateLimit;
+    private final ConfigManager configManager;
+    private final TokenBucket globalRateLimit;
+    private final TokenBucket uuidToProfileRateLimit;
 
     @Inject
-    private MojangProfileResolver(final Logger logger, final ProfileCache cache) {
+    private MojangProfileResolver(final Logger logger, final ProfileCache cache, final ConfigManager configManager) {
         this.client = HttpClient.newHttpClient();
         this.gson = new GsonBuilder()
             .registerTypeAdapter(UUID.class, new UUIDTypeAdapter())
             .create();
-        this.executorService = Executors.newFixedThreadPool(2, ConcurrentUtil.carbonThreadFactory(logger, "MojangProfileResolver"));
+        this.executorService = Executors.newScheduledThreadPool(2, ConcurrentUtil.carbonThreadFactory(logger, "MojangProfileResolver"));
         this.cache = cache;
-        this.globalRateLimit = new RateLimiter(600);
-        this.uuidToProfileRateLimit = new RateLimiter(200);
+        this.configManager = configManager;
+        this.globalRateLimit = new TokenBucket(600);
+        this.uuidToProfileRateLimit = new TokenBucket(200);
     }
 
     @Override
     public synchronized CompletableFuture<@Nullable UUID> resolveUUID(final String username, final boolean cacheOnly) {
-        if (username.length() > 25 || username.length() < 1) { // Invalid names
+        if (!VALID_NAME.matcher(username).matches()) { // Invalid names
             return CompletableFuture.completedFuture(null);
         }
         if (cacheOnly || this.cache.hasCachedEntry(username)) {
             return CompletableFuture.completedFuture(this.cache.cachedId(username));
         }
-        return this.pendingUuidLookups.computeIfAbsent(username, $ -> {
-            if (!this.globalRateLimit.canSubmit()) {
-                return CompletableFuture.completedFuture(null);
-            }
-            final CompletableFuture<@Nullable BasicLookupResponse> mojangLookup = CompletableFuture.supplyAsync(() -> {
-                try {
-                    final HttpRequest request = createRequest(
-                        "https://api.mojang.com/users/profiles/minecraft/" + username);
+        final @Nullable CompletableFuture<@Nullable UUID> pending = this.pendingUuidLookups.get(username);
+        if (pending != null) {
+            return pending;
+        }
 
-                    return this.sendRequest(request);
-                } catch (final Exception e) {
-                    throw new RuntimeException("Exception resolving UUID for name " + username, e);
+        // Queue the name and send it with any others requested within the batch window
+        final CompletableFuture<@Nullable UUID> lookup = new CompletableFuture<>();
+        this.pendingUuidLookups.put(username, lookup);
+        this.queuedUsernames.add(username);
+        if (this.queuedUsernames.size() >= BULK_LIMIT) {
+            this.flushUsernames();
+        } else if (this.queuedUsernames.size() == 1) {
+            this.executorService.schedule(this::flushUsernames, this.settings().batchWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        return lookup;
+    }
+
+    private synchronized void flushUsernames() {
+        while (!this.queuedUsernames.isEmpty()) {
+            final List<String> batch = this.queuedUsernames.subList(0, Math.min(BULK_LIMIT, this.queuedUsernames.size()));
+            final List<String> usernames = List.copyOf(batch);
+            batch.clear();
+            this.executorService.execute(() -> this.lookupUsernames(usernames));
+        }
+    }
+
+    private void lookupUsernames(final List<String> usernames) {
+        if (!this.globalRateLimit.tryAcquire()) {
+            this.completeUsernames(usernames, null, null);
+            return;
+        }
+        try {
+            final HttpRequest request = HttpRequest.newBuilder()
+                .uri(this.uri("/profiles/minecraft"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(this.gson.toJson(usernames)))
+                .build();
+            final HttpResponse<String> response = this.send(request);
+            if (response.statusCode() == 400) {
+                if (usernames.size() > 1) {
+                    // Some name was rejected, look them up one by one so the rest still resolve
+                    for (final String username : usernames) {
+                        this.lookupUsernames(List.of(username));
+                    }
+                } else {
+                    this.completeUsernames(usernames, null, null);
                 }
-            }, this.executorService);
+                return;
+            } else if (response.statusCode() == 404 || response.statusCode() == 204) {
+                // Not a definite answer for any name, don't cache misses
+                this.completeUsernames(usernames, null, null);
+                return;
+            } else if (response.statusCode() != 200) {
+                throw new RuntimeException("Received non-200 response code (" + response.statusCode() + ") for request " + request + ": " + response.body());
+            }
+            this.globalRateLimit.succeeded();
 
-            mojangLookup.whenComplete((result, $$$) -> {
-                synchronized (this) {
-                    this.cache.cache(result == null ? null : result.id(), username);
-                    this.pendingUuidLookups.remove(username);
+            final String body = response.body();
+            final @Nullable List<BasicLookupResponse> profiles = this.gson.fromJson(body, new TypeToken<List<BasicLookupResponse>>() {}.getType());
+            if (profiles == null) {
+                throw new RuntimeException("Malformed response body for request " + request + ": '" + body + "'");
+            }
+            final Map<String, UUID> found = new HashMap<>();
+            for (final BasicLookupResponse profile : profiles) {
+                found.put(profile.name().toLowerCase(Locale.ROOT), profile.id());
+            }
+            this.completeUsernames(usernames, found, null);
+        } catch (final Exception e) {
+            this.completeUsernames(usernames, null, new RuntimeException("Exception resolving UUIDs for names " + usernames, e));
+        }
+    }
+
+    private void completeUsernames(
+        final List<String> usernames,
+        final @Nullable Map<String, UUID> found,
+        final @Nullable Throwable failure
+    ) {
+        final Map<CompletableFuture<@Nullable UUID>, @Nullable UUID> lookups = new HashMap<>();
+        synchronized (this) {
+            for (final String username : usernames) {
+                final @Nullable CompletableFuture<@Nullable UUID> lookup = this.pendingUuidLookups.remove(username);
+                // Names missing from a successful response don't exist, cache the miss like the single lookup does
+                final @Nullable UUID id = found == null ? null : found.get(username.toLowerCase(Locale.ROOT));
+                if (found != null) {
+                    this.cache.cache(id, username);
                 }
-            });
+                if (lookup != null) {
+                    lookups.put(lookup, id);
+                }
+            }
+        }
 
-            return mojangLookup;
-        }).thenApply(response -> {
-            if (response == null) {
-                return null;
+        // Dependent stages run when the lookups complete, don't hold the resolver's monitor for them
+        lookups.forEach((lookup, id) -> {
+            if (failure != null) {
+                lookup.completeExceptionally(failure);
+            } else {
+                lookup.complete(id);
             }
-            return response.id();
         });
     }
 
@@ -119,21 +200,30 @@ public final class MojangProfileResolver implements ProfileResolver {
             return CompletableFuture.completedFuture(this.cache.cachedName(uuid));
         }
         return this.pendingUsernameLookups.computeIfAbsent(uuid, $ -> {
-            final boolean globalLimited = !this.globalRateLimit.canSubmit();
-            final boolean nameLimited = !this.uuidToProfileRateLimit.canSubmit();
-            if (globalLimited || nameLimited) {
-                if (nameLimited && !globalLimited) {
-                    // Add back to the global limit if we didn't actually make a request due to uuidToProfileRateLimit
-                    this.globalRateLimit.available.getAndIncrement();
-                }
+            if (!this.globalRateLimit.tryAcquire()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!this.uuidToProfileRateLimit.tryAcquire()) {
+                // Add back to the global limit if we didn't actually make a request due to uuidToProfileRateLimit
+                this.globalRateLimit.release();
                 return CompletableFuture.completedFuture(null);
             }
             final CompletableFuture<@Nullable BasicLookupResponse> mojangLookup = CompletableFuture.supplyAsync(() -> {
                 try {
-                    final HttpRequest request = createRequest(
-                        "https://api.mojang.com/user/profile/" + uuid.toString().replace("-", ""));
+                    final HttpRequest request = HttpRequest.newBuilder()
+                        .uri(this.uri("/user/profile/" + FastUuidSansHyphens.toString(uuid)))
+                        .GET()
+                        .build();
 
-                    return this.sendRequest(request);
+                    final @Nullable String body = this.sendRequest(request);
+                    if (body == null) {
+                        return null;
+                    }
+                    final @Nullable BasicLookupResponse basicLookupResponse = this.gson.fromJson(body, BasicLookupResponse.class);
+                    if (basicLookupResponse == null) {
+                        throw new RuntimeException("Malformed response body for request " + request + ": '" + body + "'");
+                    }
+                    return basicLookupResponse;
                 } catch (final Exception e) {
                     throw new RuntimeException("Exception resolving name for UUID " + uuid, e);
                 }
@@ -155,21 +245,33 @@ public final class MojangProfileResolver implements ProfileResolver {
         });
     }
 
-    private static HttpRequest createRequest(final String uri) throws URISyntaxException {
-        return HttpRequest.newBuilder()
-            .uri(new URI(uri))
-            .GET()
-            .build();
+    private PrimaryConfig.ProfileResolverSettings settings() {
+        return this.configManager.primaryConfig().profileResolver();
     }
 
-    private @Nullable BasicLookupResponse sendRequest(final HttpRequest request) throws IOException, InterruptedException {
+    private URI uri(final String path) {
+        final String base = this.settings().apiUrl;
+        return URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) + path : base + path);
+    }
+
+    private HttpResponse<String> send(final HttpRequest request) throws IOException, InterruptedException {
         final HttpResponse<String> response = this.client.send(request, HttpResponse.BodyHandlers.ofString());
 
         if (response == null) {
             throw new RuntimeException("Null response for request " + request);
         } else if (response.statusCode() == 429) {
+            final long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(0L);
+            this.globalRateLimit.rateLimited(Duration.ofSeconds(retryAfter));
             throw new RuntimeException("Got rate-limited by Mojang, could not fulfill request: " + request);
-        } else if (response.statusCode() == 404) {
+        }
+        return response;
+    }
+
+    // Returns the response body, or null when the profile does not exist
+    private @Nullable String sendRequest(final HttpRequest request) throws IOException, InterruptedException {
+        final HttpResponse<String> response = this.send(request);
+
+        if (response.statusCode() == 404 || response.statusCode() == 204) {
             // No such profile
             return null;
         } else if (response.statusCode() == 400) {
@@ -179,18 +281,13 @@ public final class MojangProfileResolver implements ProfileResolver {
             throw new RuntimeException("Received non-200 response code (" + response.statusCode() + ") for request " + request + ": " + response.body());
         }
 
-        final BasicLookupResponse basicLookupResponse = this.gson.fromJson(response.body(), new TypeToken<BasicLookupResponse>() {}.getType());
-        if (basicLookupResponse == null) {
-            throw new RuntimeException("Malformed response body for request " + request + ": '" + response.body() + "'");
-        }
-        return basicLookupResponse;
+        this.globalRateLimit.succeeded();
+        return response.body();
     }
 
     @Override
     public void shutdown() {
         ConcurrentUtil.shutdownExecutor(this.executorService, TimeUnit.MILLISECONDS, 500);
-        this.globalRateLimit.shutdown();
-        this.uuidToProfileRateLimit.shutdown();
     }
 
     private record BasicLookupResponse(UUID id, String name) {
@@ -215,28 +312,59 @@ public final class MojangProfileResolver implements ProfileResolver {
 
     }
 
-    private static final class RateLimiter {
+    /**
+     * Token bucket refilling continuously at {@code perTenMinutes} tokens per ten minutes.
+     *
+     * <p>A 429 response empties the bucket and blocks it for the server's Retry-After, or an exponential
+     * backoff starting at 30 seconds when no header was sent. The backoff resets on the next successful response.</p>
+     */
+    private static final class TokenBucket {
 
-        private final AtomicInteger available;
-        private final Timer timer;
+        private static final long REFILL_PERIOD = TimeUnit.MINUTES.toNanos(10);
+        private static final long MIN_BACKOFF = TimeUnit.SECONDS.toNanos(30);
 
-        private RateLimiter(final int perTenMinutes) {
-            this.timer = new Timer("CarbonChat " + this);
-            this.available = new AtomicInteger(perTenMinutes);
-            this.timer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    RateLimiter.this.available.set(perTenMinutes);
-                }
-            }, 0L, Duration.ofMinutes(10).toMillis());
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+        private long blockedUntil;
+        private long backoff = MIN_BACKOFF;
+
+        private TokenBucket(final int perTenMinutes) {
+            this.capacity = perTenMinutes;
+            this.tokensPerNano = (double) perTenMinutes / REFILL_PERIOD;
+            this.tokens = perTenMinutes;
+            this.lastRefill = System.nanoTime();
+            this.blockedUntil = this.lastRefill;
+        }
+
+        synchronized boolean tryAcquire() {
+            final long now = System.nanoTime();
+            if (now - this.blockedUntil < 0) {
+                return false;
+            }
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.tokensPerNano);
+            this.lastRefill = now;
+            if (this.tokens < 1) {
+                return false;
+            }
+            this.tokens--;
+            return true;
+        }
+
+        synchronized void release() {
+            this.tokens = Math.min(this.capacity, this.tokens + 1);
         }
 
-        boolean canSubmit() {
-            return this.available.getAndDecrement() >= 0;
+        synchronized void rateLimited(final Duration retryAfter) {
+            final long wait = retryAfter.isZero() ? this.backoff : retryAfter.toNanos();
+            this.backoff = Math.min(REFILL_PERIOD, this.backoff * 2);
+            this.tokens = 0;
+            this.blockedUntil = System.nanoTime() + wait;
         }
 
-        void shutdown() {
-            this.timer.cancel();
+        synchronized void succeeded() {
+            this.backoff = MIN_BACKOFF;
         }
 
     }
@@ -21,25 +21,30 @@ package net.draycia.carbon.common.users;
 
 import cloud.commandframework.context.CommandContext;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Stream;
 import net.draycia.carbon.api.CarbonServer;
 import net.draycia.carbon.api.users.CarbonPlayer;
-import net.draycia.carbon.api.users.UserManager;
 import net.draycia.carbon.common.command.Commander;
 import net.draycia.carbon.common.command.PlayerCommander;
 import net.draycia.carbon.common.command.argument.PlayerSuggestions;
+import net.draycia.carbon.common.messaging.MessagingManager;
 import net.draycia.carbon.common.messaging.packets.LocalPlayerChangePacket;
 import net.draycia.carbon.common.messaging.packets.LocalPlayersPacket;
-import net.draycia.carbon.common.util.Exceptions;
+import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.messaging.packets.RosterVersionPacket;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
@@ -47,104 +52,254 @@ import org.checkerframework.framework.qual.DefaultQualifier;
 /**
  * Eventually consistent store of who is on each server in the network (besides self).
  *
- * <p>Currently used for username suggestions and whispers.</p>
+ * <p>Currently used for username suggestions, whispers and routing packets to the server hosting a player.</p>
+ *
+ * <p>Rosters are kept current by sequence-numbered deltas. When a delta or a periodic version announcement reveals
+ * missed changes, the full roster is requested from just that server. Servers using the legacy packet format send no
+ * sequence, their changes and full rosters are applied as they arrive, as older versions do.</p>
+ *
+ * <p>Besides the per server maps, players are indexed by id and by lower case username, so presence checks are
+ * single lookups and suggestions are prefix range queries. Indexes are only written while holding the monitor
+ * of this object, reads never block.</p>
  */
 @DefaultQualifier(NonNull.class)
 @Singleton
 public final class NetworkUsers implements PlayerSuggestions {
 
+    private static final long RESYNC_RETRY = TimeUnit.SECONDS.toNanos(5);
+    private static final long EXPIRE_AFTER = TimeUnit.SECONDS.toNanos(95);
+
     private final CarbonServer server;
     private final Map<UUID, Map<UUID, String>> map = new ConcurrentHashMap<>();
-    private final UserManager<? extends CarbonPlayer> userManager;
+    private final Map<UUID, Presence> players = new ConcurrentHashMap<>();
+    // keyed by lower case username + NUL + id, so equal names of different players don't collide
+    private final ConcurrentNavigableMap<String, Presence> names = new ConcurrentSkipListMap<>();
+    // roster sequence, last announcement and last resync request per server, guarded by this
+    private final Map<UUID, Long> sequences = new HashMap<>();
+    private final Map<UUID, Long> lastHeard = new HashMap<>();
+    private final Map<UUID, Long> resyncRequested = new HashMap<>();
     private final ProfileCache profileCache;
+    private final Provider<MessagingManager> messaging;
+    private final PacketFactory packetFactory;
 
     @Inject
     private NetworkUsers(
         final CarbonServer server,
-        final UserManager<?> userManager,
-        final ProfileCache profileCache
+        final ProfileCache profileCache,
+        final Provider<MessagingManager> messaging,
+        final PacketFactory packetFactory
     ) {
         this.server = server;
-        this.userManager = userManager;
         this.profileCache = profileCache;
+        this.messaging = messaging;
+        this.packetFactory = packetFactory;
     }
 
-    public void handlePacket(final LocalPlayerChangePacket packet) {
-        final Map<UUID, String> serverMap = this.map.computeIfAbsent(packet.getSender(), $ -> new ConcurrentHashMap<>());
+    public synchronized void handlePacket(final LocalPlayerChangePacket packet) {
+        final UUID serverId = packet.getSender();
+        if (!packet.format().legacy()) {
+            this.lastHeard.put(serverId, System.nanoTime());
+            final long known = this.sequences.getOrDefault(serverId, 0L);
+            if (packet.sequence() <= known) {
+                return;
+            }
+            if (packet.sequence() != known + 1) {
+                this.requestRoster(serverId);
+            }
+            this.sequences.put(serverId, packet.sequence());
+        }
+
+        final Map<UUID, String> serverMap = this.map.computeIfAbsent(serverId, $ -> new ConcurrentHashMap<>());
 
         switch (packet.changeType()) {
             case ADD -> {
                 serverMap.put(packet.playerId(), packet.playerName());
+                this.added(serverId, packet.playerId(), packet.playerName());
                 this.profileCache.cache(packet.playerId(), packet.playerName());
             }
-            case REMOVE -> serverMap.remove(packet.playerId());
+            case REMOVE -> {
+                if (serverMap.remove(packet.playerId()) != null) {
+                    this.removed(serverId, packet.playerId());
+                }
+            }
         }
 
         this.map.values().removeIf(Map::isEmpty);
     }
 
-    public void handlePacket(final LocalPlayersPacket packet) {
+    public synchronized void handlePacket(final LocalPlayersPacket packet) {
+        final UUID serverId = packet.getSender();
+        if (!packet.format().legacy()) {
+            final @Nullable Long known = this.sequences.get(serverId);
+            // A requested roster may be as old as the deltas applied since the gap, but not older
+            final boolean requested = this.resyncRequested.containsKey(serverId);
+            if (known != null && (requested ? packet.sequence() < known : packet.sequence() <= known)) {
+                return;
+            }
+            this.resyncRequested.remove(serverId);
+            this.sequences.put(serverId, packet.sequence());
+            this.lastHeard.put(serverId, System.nanoTime());
+        }
+
+        final @Nullable Map<UUID, String> previous = this.map.remove(serverId);
+        if (previous != null) {
+            previous.forEach((id, name) -> {
+                if (!packet.players().containsKey(id)) {
+                    this.removed(serverId, id);
+                }
+            });
+        }
         if (packet.players().isEmpty()) {
-            this.map.remove(packet.getSender());
-        } else {
-            final Map<UUID, String> serverMap = this.map.computeIfAbsent(packet.getSender(), $ -> new ConcurrentHashMap<>());
-            serverMap.clear();
-            serverMap.putAll(packet.players());
+            return;
+        }
+        this.map.put(serverId, new ConcurrentHashMap<>(packet.players()));
+        packet.players().forEach((id, name) -> this.added(serverId, id, name));
+
+        packet.players().forEach(this.profileCache::cache);
+    }
+
+    public synchronized void handlePacket(final RosterVersionPacket packet) {
+        final UUID serverId = packet.getSender();
+        this.lastHeard.put(serverId, System.nanoTime());
+        if (packet.sequence() != this.sequences.getOrDefault(serverId, 0L)) {
+            this.requestRoster(serverId);
+        }
+    }
+
+    /**
+     * Forgets servers that stopped announcing their roster version, after shutting down or crashing.
+     */
+    public synchronized void expire() {
+        final long now = System.nanoTime();
+        for (final UUID serverId : List.copyOf(this.lastHeard.keySet())) {
+            if (now - this.lastHeard.get(serverId) > EXPIRE_AFTER) {
+                this.forget(serverId);
+            }
+        }
+    }
+
+    /**
+     * Gets the servers currently announcing their roster.
+     *
+     * @return known server ids
+     */
+    public synchronized Set<UUID> knownServers() {
+        return Set.copyOf(this.lastHeard.keySet());
+    }
 
-            packet.players().forEach(this.profileCache::cache);
+    private void forget(final UUID serverId) {
+        this.sequences.remove(serverId);
+        this.lastHeard.remove(serverId);
+        this.resyncRequested.remove(serverId);
+        final @Nullable Map<UUID, String> previous = this.map.remove(serverId);
+        if (previous != null) {
+            previous.keySet().forEach(id -> this.removed(serverId, id));
         }
     }
 
+    private void requestRoster(final UUID serverId) {
+        final long now = System.nanoTime();
+        final @Nullable Long requested = this.resyncRequested.get(serverId);
+        if (requested != null && now - requested < RESYNC_RETRY) {
+            return;
+        }
+        this.resyncRequested.put(serverId, now);
+        this.messaging.get().queuePacketAndFlush(() -> this.packetFactory.rosterRequest(serverId));
+    }
+
+    private void added(final UUID serverId, final UUID playerId, final String name) {
+        final @Nullable Presence old = this.players.get(playerId);
+        final Set<UUID> servers = new HashSet<>();
+        if (old != null) {
+            servers.addAll(old.servers());
+            if (!old.name().equals(name)) {
+                this.names.remove(nameKey(old.name(), playerId));
+            }
+        }
+        servers.add(serverId);
+        final Presence presence = new Presence(playerId, name, Set.copyOf(servers));
+        this.players.put(playerId, presence);
+        this.names.put(nameKey(name, playerId), presence);
+    }
+
+    private void removed(final UUID serverId, final UUID playerId) {
+        final @Nullable Presence old = this.players.get(playerId);
+        if (old == null) {
+            return;
+        }
+        final Set<UUID> servers = new HashSet<>(old.servers());
+        servers.remove(serverId);
+        if (servers.isEmpty()) {
+            this.players.remove(playerId);
+            this.names.remove(nameKey(old.name(), playerId));
+        } else {
+            final Presence presence = new Presence(playerId, old.name(), Set.copyOf(servers));
+            this.players.put(playerId, presence);
+            this.names.put(nameKey(old.name(), playerId), presence);
+        }
+    }
+
+    private static String nameKey(final String name, final UUID id) {
+        return name.toLowerCase(Locale.ROOT) + '\0' + id;
+    }
+
     // PlayerSuggestions impl
     @Override
     public List<String> apply(final CommandContext<Commander> ctx, final String input) {
         final Commander commander = ctx.getSender();
+        final String prefix = input.toLowerCase(Locale.ROOT);
+        final @Nullable CarbonPlayer sender = commander instanceof PlayerCommander player ? player.carbonPlayer() : null;
 
-        final List<? extends CarbonPlayer> local = this.server.players();
-
-        if (!(commander instanceof PlayerCommander player)) {
-            return Stream.concat(local.stream().map(CarbonPlayer::username), this.map.values().stream().flatMap(m -> m.values().stream()))
-                .distinct()
-                .toList();
+        final Set<String> suggestions = new LinkedHashSet<>();
+        final Set<UUID> local = new HashSet<>();
+        for (final CarbonPlayer player : this.server.players()) {
+            local.add(player.uuid());
+            if (player.username().toLowerCase(Locale.ROOT).startsWith(prefix) && (sender == null || sender.awareOf(player))) {
+                suggestions.add(player.username());
+            }
         }
-        final CarbonPlayer carbonPlayer = player.carbonPlayer();
 
-        final List<? extends CompletableFuture<? extends CarbonPlayer>> remotePlayerFutures =
-            this.map.values().stream()
-                .flatMap(m -> m.keySet().stream())
-                .map(this.userManager::user)
-                .toList(); // collect to ensure we request all futures before waiting
-        final CompletableFuture<Void> combinedFuture = CompletableFuture.allOf(remotePlayerFutures.toArray(CompletableFuture[]::new));
-        try {
-            combinedFuture.get(50, TimeUnit.MILLISECONDS);
-        } catch (final TimeoutException ignore) {
-        } catch (final Exception e) {
-            throw Exceptions.rethrow(e);
+        // Vanish state is only known for local players, remote players are always suggested
+        for (final Presence presence : this.names.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            if (!local.contains(presence.id())) {
+                suggestions.add(presence.name());
+            }
         }
-        final Stream<? extends CarbonPlayer> remote = remotePlayerFutures.stream()
-            .map(future -> future.getNow(null))
-            .filter(Objects::nonNull);
 
-        return Stream.concat(local.stream(), remote)
-            .filter(carbonPlayer::awareOf)
-            .map(CarbonPlayer::username)
-            .distinct()
-            .toList();
+        return List.copyOf(suggestions);
     }
 
     public boolean online(final CarbonPlayer player) {
         if (player.online()) {
             return true;
         }
-        return this.map.values().stream().anyMatch(server -> server.containsKey(player.uuid()));
+        return this.players.containsKey(player.uuid());
     }
 
     public boolean online(final UUID uuid) {
-        final @Nullable CarbonPlayer player = this.server.players().stream()
-            .filter(it -> it.uuid().equals(uuid))
-            .findFirst()
-            .orElse(null);
-        return player != null || this.map.values().stream().anyMatch(server -> server.containsKey(uuid));
+        if (this.players.containsKey(uuid)) {
+            return true;
+        }
+        for (final CarbonPlayer player : this.server.players()) {
+            if (player.uuid().equals(uuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the servers the player is known to be on, besides this one.
+     *
+     * @param uuid player id
+     * @return server ids, empty when the player is not known to be on another server
+     */
+    public Set<UUID> servers(final UUID uuid) {
+        final @Nullable Presence presence = this.players.get(uuid);
+        return presence == null ? Set.of() : presence.servers();
+    }
+
+    private record Presence(UUID id, String name, Set<UUID> servers) {
     }
 
 }
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import net.draycia.carbon.api.CarbonServer;
 import net.draycia.carbon.api.users.CarbonPlayer;
 import net.draycia.carbon.api.users.Party;
 import net.draycia.carbon.common.config.ConfigManager;
@@ -53,6 +54,7 @@ public final class PartyInvites {
     private final Logger logger;
     private final CarbonMessages messages;
     private final ConfigManager config;
+    private final CarbonServer server;
 
     @Inject
     private PartyInvites(
@@ -61,7 +63,8 @@ public final class PartyInvites {
         final UserManagerInternal<?> users,
         final Logger logger,
         final CarbonMessages messages,
-        final ConfigManager config
+        final ConfigManager config,
+        final CarbonServer server
     ) {
         this.messaging = messaging;
         this.packetFactory = packetFactory;
@@ -69,6 +72,7 @@ public final class PartyInvites {
         this.logger = logger;
         this.messages = messages;
         this.config = config;
+        this.server = server;
     }
 
     public void sendInvite(final UUID from, final UUID to, final UUID party) {
@@ -119,8 +123,13 @@ public final class PartyInvites {
         cache.put(pkt.from(), pkt.party());
         this.clean();
 
+        // Every server keeps the invite so it can be accepted after switching servers, only the host notifies
+        if (this.server.players().stream().noneMatch(p -> p.uuid().equals(pkt.to()))) {
+            return;
+        }
+
         final CompletableFuture<? extends CarbonPlayer> to = this.users.user(pkt.to());
-        final CompletableFuture<? extends CarbonPlayer> from = this.users.user(pkt.to());
+        final CompletableFuture<? extends CarbonPlayer> from = this.users.user(pkt.from());
         final CompletableFuture<Party> party = this.users.party(pkt.party());
 
         CompletableFuture.allOf(to, from, party).thenRun(() -> {
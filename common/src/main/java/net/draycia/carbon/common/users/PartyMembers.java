@@ -0,0 +1,167 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users;
+
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import net.draycia.carbon.api.users.Party;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Index of the online members of each party, and of the parties that have online members.
+ *
+ * <p>Lets party chat resolve recipients without loading parties or players. Reads are lock-free,
+ * updates (joins, quits and membership changes) are serialized.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class PartyMembers {
+
+    // Marks an online player without a party, ConcurrentHashMap does not allow null values
+    private static final UUID NO_PARTY = new UUID(0, 0);
+
+    private final Map<UUID, UUID> partyOf = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> members = new ConcurrentHashMap<>();
+    private final Map<UUID, Party> parties = new ConcurrentHashMap<>();
+
+    /**
+     * Records {@code player} as online and in {@code party}.
+     *
+     * @param player player id
+     * @param party  party id, or {@code null} when not in a party
+     */
+    public synchronized void online(final UUID player, final @Nullable UUID party) {
+        final UUID next = party == null ? NO_PARTY : party;
+        final @Nullable UUID previous = this.partyOf.put(player, next);
+        if (next.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            this.removeMember(previous, player);
+        }
+        if (party != null) {
+            this.members.computeIfAbsent(party, $ -> ConcurrentHashMap.newKeySet()).add(player);
+        }
+    }
+
+    /**
+     * Records {@code player} as online in {@code party} unless they are already tracked.
+     *
+     * @param player player id
+     * @param party  party id, or {@code null} when not in a party
+     * @return whether the player was newly tracked
+     */
+    public synchronized boolean joined(final UUID player, final @Nullable UUID party) {
+        if (this.partyOf.containsKey(player)) {
+            return false;
+        }
+        this.online(player, party);
+        return true;
+    }
+
+    public boolean tracksPlayer(final UUID player) {
+        return this.partyOf.containsKey(player);
+    }
+
+    public synchronized void offline(final UUID player) {
+        final @Nullable UUID previous = this.partyOf.remove(player);
+        if (previous != null) {
+            this.removeMember(previous, player);
+        }
+    }
+
+    /**
+     * Updates the party of {@code player} if they are online, otherwise does nothing.
+     *
+     * @param player player id
+     * @param party  new party id, or {@code null} when they left their party
+     */
+    public synchronized void changed(final UUID player, final @Nullable UUID party) {
+        if (this.partyOf.containsKey(player)) {
+            this.online(player, party);
+        }
+    }
+
+    /**
+     * Removes {@code player} from {@code party} if they are online and still recorded in it.
+     *
+     * @param player player id
+     * @param party  party id
+     */
+    public synchronized void left(final UUID player, final UUID party) {
+        if (party.equals(this.partyOf.get(player))) {
+            this.online(player, null);
+        }
+    }
+
+    /**
+     * Keeps a reference to {@code party} while it has online members.
+     *
+     * @param party party
+     */
+    public synchronized void loaded(final Party party) {
+        if (this.members.containsKey(party.id())) {
+            this.parties.put(party.id(), party);
+        }
+    }
+
+    public synchronized void disbanded(final UUID party) {
+        final @Nullable Set<UUID> online = this.members.remove(party);
+        this.parties.remove(party);
+        if (online != null) {
+            for (final UUID player : online) {
+                this.partyOf.replace(player, party, NO_PARTY);
+            }
+        }
+    }
+
+    public Set<UUID> onlineMembers(final UUID party) {
+        final @Nullable Set<UUID> online = this.members.get(party);
+        return online == null ? Set.of() : online;
+    }
+
+    public @Nullable Party party(final UUID party) {
+        return this.parties.get(party);
+    }
+
+    public boolean tracksParty(final UUID party) {
+        return this.parties.containsKey(party);
+    }
+
+    private void removeMember(final UUID party, final UUID player) {
+        if (party.equals(NO_PARTY)) {
+            return;
+        }
+        final @Nullable Set<UUID> online = this.members.get(party);
+        if (online != null) {
+            online.remove(player);
+            if (online.isEmpty()) {
+                this.members.remove(party);
+                this.parties.remove(party);
+            }
+        }
+    }
+
+}
@@ -41,27 +41,55 @@ public final class PlatformUserManager implements UserManagerInternal<WrappedCar
     private final UserManagerInternal<CarbonPlayerCommon> backingManager;
     private final PlayerFactory playerFactory;
     private final Injector injector;
+    private final PartyMembers partyMembers;
+    private final IgnoreIndex ignoreIndex;
 
     @Inject
     private PlatformUserManager(
         final @Backing UserManagerInternal<CarbonPlayerCommon> backingManager,
         final PlayerFactory playerFactory,
-        final Injector injector
+        final Injector injector,
+        final PartyMembers partyMembers,
+        final IgnoreIndex ignoreIndex
     ) {
         this.backingManager = backingManager;
         this.playerFactory = playerFactory;
         this.injector = injector;
+        this.partyMembers = partyMembers;
+        this.ignoreIndex = ignoreIndex;
     }
 
     @Override
     public CompletableFuture<WrappedCarbonPlayer> user(final UUID uuid) {
         return this.backingManager.user(uuid).thenApply(common -> {
             final WrappedCarbonPlayer wrapped = this.playerFactory.wrap(common);
-            common.markTransientLoaded(!wrapped.online());
+            final boolean online = wrapped.online();
+            common.markTransientLoaded(!online);
+            if (online) {
+                this.trackOnline(common);
+            }
             return wrapped;
         });
     }
 
+    private void trackOnline(final CarbonPlayerCommon player) {
+        // Indexed once per session, later changes go through the ignore and party hooks
+        if (!this.ignoreIndex.indexed(player.uuid())) {
+            this.ignoreIndex.online(player.uuid(), player.ignoring());
+        }
+        if (this.partyMembers.tracksPlayer(player.uuid())) {
+            return;
+        }
+        final @Nullable UUID partyId = player.partyId();
+        if (this.partyMembers.joined(player.uuid(), partyId) && partyId != null && !this.partyMembers.tracksParty(partyId)) {
+            this.backingManager.party(partyId).thenAccept(party -> {
+                if (party != null) {
+                    this.partyMembers.loaded(party);
+                }
+            });
+        }
+    }
+
     @Override
     public Party createParty(final Component name) {
         final PartyImpl party = PartyImpl.create(name);
@@ -86,6 +114,8 @@ public final class PlatformUserManager implements UserManagerInternal<WrappedCar
 
     @Override
     public CompletableFuture<Void> loggedOut(final UUID uuid) {
+        this.partyMembers.offline(uuid);
+        this.ignoreIndex.offline(uuid);
         return this.backingManager.loggedOut(uuid);
     }
 
@@ -19,6 +19,10 @@
  */
 package net.draycia.carbon.common.users;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -29,161 +33,260 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import net.draycia.carbon.common.DataDirectory;
 import net.draycia.carbon.common.serialisation.gson.UUIDSerializerGson;
 import net.draycia.carbon.common.util.FileUtil;
+import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
+/**
+ * Caches Mojang profile lookups (including misses) by id and by name.
+ *
+ * <p>Both indexes are concurrent and bounded. Changes are appended to a journal on {@link #save()}, which is
+ * compacted into a snapshot of the live entries once it grows well past the number of entries.</p>
+ */
 @DefaultQualifier(NonNull.class)
 @Singleton
 public final class ProfileCache {
 
     private static final long REMOVE_AFTER = Duration.ofDays(7).toMillis();
     private static final long REMOVE_NULL_IDS_AFTER = Duration.ofHours(1).toMillis();
+    private static final int MAXIMUM_SIZE = 250_000;
+    private static final int MINIMUM_COMPACT_LINES = 4096;
+    private static final String NULL = "-";
 
-    private final Gson gson;
-    private final Path cacheFile;
-    private final Map<UUID, CacheEntry> byId;
-    private final Map<String, CacheEntry> byName;
-    private final Set<CacheEntry> entries;
+    private final Logger logger;
+    private final Path journalFile;
+    private final Path legacyCacheFile;
+    private final Cache<UUID, CacheEntry> byId;
+    private final Cache<String, CacheEntry> byName;
+    private final Queue<CacheEntry> unsaved = new ConcurrentLinkedQueue<>();
+    private int journalLines;
 
     private record CacheEntry(@Nullable UUID uuid, @Nullable String name, long updated) {
 
+        long expiresAt() {
+            return this.updated + (this.uuid == null ? REMOVE_NULL_IDS_AFTER : REMOVE_AFTER);
+        }
+
     }
 
     @Inject
-    private ProfileCache(final @DataDirectory Path dataDirectory) {
-        this.gson = new GsonBuilder()
-            .registerTypeAdapter(UUID.class, new UUIDSerializerGson())
-            .create();
-        this.cacheFile = dataDirectory.resolve("users/profile_cache.json");
-        this.byId = new HashMap<>();
-        this.byName = new HashMap<>();
-        this.entries = new HashSet<>();
+    private ProfileCache(final @DataDirectory Path dataDirectory, final Logger logger) {
+        this.logger = logger;
+        this.journalFile = dataDirectory.resolve("users/profile_cache.journal");
+        this.legacyCacheFile = dataDirectory.resolve("users/profile_cache.json");
+        this.byName = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfter(new EntryExpiry<String>())
+            .evictionListener((final @Nullable String name, final @Nullable CacheEntry entry, final RemovalCause cause) -> {
+                if (entry != null && entry.uuid() != null) {
+                    this.unlinkId(entry.uuid(), entry);
+                }
+            })
+            .build();
+        this.byId = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfter(new EntryExpiry<UUID>())
+            .evictionListener((final @Nullable UUID uuid, final @Nullable CacheEntry entry, final RemovalCause cause) -> {
+                if (entry != null && entry.name() != null) {
+                    this.unlinkName(entry.name(), entry);
+                }
+            })
+            .build();
         this.load();
     }
 
-    public synchronized @Nullable String cachedName(final UUID id) {
-        final @Nullable CacheEntry entry = this.byId.get(id);
-        if (entry == null) {
-            return null;
-        } else if (entry.updated() < cutoff()) {
-            return null;
-        }
-        return entry.name();
+    public @Nullable String cachedName(final UUID id) {
+        final @Nullable CacheEntry entry = this.byId.getIfPresent(id);
+        return entry == null ? null : entry.name();
     }
 
-    public synchronized @Nullable UUID cachedId(final String name) {
-        final @Nullable CacheEntry entry = this.byName.get(name);
-        if (entry == null) {
-            return null;
-        } else if (entry.updated() < cutoff()) {
-            return null;
-        }
-        return entry.uuid();
+    public @Nullable UUID cachedId(final String name) {
+        final @Nullable CacheEntry entry = this.byName.getIfPresent(name);
+        return entry == null ? null : entry.uuid();
     }
 
-    public synchronized boolean hasCachedEntry(final String name) {
-        final @Nullable CacheEntry entry = this.byName.get(name);
-        if (entry == null) {
-            return false;
-        }
-        return entry.updated() >= cutoff();
+    public boolean hasCachedEntry(final String name) {
+        return this.byName.getIfPresent(name) != null;
     }
 
-    public synchronized boolean hasCachedEntry(final UUID uuid) {
-        final @Nullable CacheEntry entry = this.byId.get(uuid);
-        if (entry == null) {
-            return false;
-        }
-        return entry.updated() >= cutoff();
+    public boolean hasCachedEntry(final UUID uuid) {
+        return this.byId.getIfPresent(uuid) != null;
     }
 
-    public synchronized void cache(final @Nullable UUID uuid, final @Nullable String name) {
-        final @Nullable CacheEntry r1 = uuid == null ? null : this.byId.remove(uuid);
-        final @Nullable CacheEntry r2 = name == null ? null : this.byName.remove(name);
-        if (r1 != null) {
-            this.entries.remove(r1);
-        }
-        if (r2 != null) {
-            this.entries.remove(r2);
-        }
+    public void cache(final @Nullable UUID uuid, final @Nullable String name) {
         final CacheEntry entry = new CacheEntry(uuid, name, System.currentTimeMillis());
-        this.entries.add(entry);
-        if (entry.name() != null) {
-            this.byName.put(entry.name(), entry);
-        }
-        if (entry.uuid() != null) {
-            this.byId.put(entry.uuid(), entry);
-        }
+        this.put(entry);
+        this.unsaved.add(entry);
     }
 
-    private synchronized void cleanup() {
-        final long cutoff = cutoff();
-        final long nullIdCutoff = nullIdCutoff();
-        for (final Iterator<CacheEntry> iterator = this.entries.iterator(); iterator.hasNext();) {
-            final CacheEntry entry = iterator.next();
-            if (entry.updated() < cutoff || entry.uuid() == null && entry.updated() < nullIdCutoff) {
-                iterator.remove();
-                if (entry.uuid() != null) {
-                    this.byId.remove(entry.uuid());
-                }
-                if (entry.name() != null) {
-                    this.byName.remove(entry.name());
-                }
+    private void put(final CacheEntry entry) {
+        // Unlink whatever the id or name previously pointed at, so both indexes agree
+        if (entry.uuid() != null) {
+            final @Nullable CacheEntry old = this.byId.asMap().put(entry.uuid(), entry);
+            if (old != null && old.name() != null && !old.name().equals(entry.name())) {
+                this.byName.asMap().remove(old.name(), old);
+            }
+        }
+        if (entry.name() != null) {
+            final @Nullable CacheEntry old = this.byName.asMap().put(entry.name(), entry);
+            if (old != null && old.uuid() != null && !old.uuid().equals(entry.uuid())) {
+                this.byId.asMap().remove(old.uuid(), old);
             }
         }
     }
 
-    private static long nullIdCutoff() {
-        return System.currentTimeMillis() - REMOVE_NULL_IDS_AFTER;
+    // Called by each index's eviction listener to drop the entry from the other index as well
+    private void unlinkId(final UUID uuid, final CacheEntry entry) {
+        this.byId.asMap().remove(uuid, entry);
     }
 
-    private static long cutoff() {
-        return System.currentTimeMillis() - REMOVE_AFTER;
+    private void unlinkName(final String name, final CacheEntry entry) {
+        this.byName.asMap().remove(name, entry);
     }
 
     private synchronized void load() {
-        this.entries.clear();
-        this.byId.clear();
-        this.byName.clear();
-        if (!Files.exists(this.cacheFile)) {
-            return;
-        }
         try {
-            try (final BufferedReader reader = Files.newBufferedReader(this.cacheFile)) {
-                final Set<CacheEntry> load = this.gson.fromJson(reader, new TypeToken<Set<CacheEntry>>() {}.getType());
-                this.entries.addAll(load);
-                for (final CacheEntry entry : this.entries) {
-                    if (entry.name() != null) {
-                        this.byName.put(entry.name(), entry);
-                    }
-                    if (entry.uuid() != null) {
-                        this.byId.put(entry.uuid(), entry);
+            if (Files.exists(this.journalFile)) {
+                try (final BufferedReader reader = Files.newBufferedReader(this.journalFile)) {
+                    final long now = System.currentTimeMillis();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        this.journalLines++;
+                        final @Nullable CacheEntry entry = parse(line);
+                        if (entry != null && entry.expiresAt() > now) {
+                            this.put(entry);
+                        }
                     }
                 }
+            } else if (Files.exists(this.legacyCacheFile)) {
+                this.loadLegacy();
+            }
+            if (this.shouldCompact()) {
+                this.compact();
             }
         } catch (final IOException ex) {
             throw new RuntimeException("Failed to load cache", ex);
         }
     }
 
+    private void loadLegacy() throws IOException {
+        final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(UUID.class, new UUIDSerializerGson())
+            .create();
+        try (final BufferedReader reader = Files.newBufferedReader(this.legacyCacheFile)) {
+            final @Nullable Set<CacheEntry> load = gson.fromJson(reader, new TypeToken<Set<CacheEntry>>() {}.getType());
+            if (load != null) {
+                final long now = System.currentTimeMillis();
+                load.stream()
+                    .filter(entry -> entry.expiresAt() > now)
+                    .sorted((a, b) -> Long.compare(a.updated(), b.updated()))
+                    .forEach(this::put);
+            }
+        }
+        this.compact();
+        Files.delete(this.legacyCacheFile);
+        this.logger.info("Converted {} to {}", this.legacyCacheFile.getFileName(), this.journalFile.getFileName());
+    }
+
+    /**
+     * Appends changes made since the last save to the journal, compacting it when it has grown too large.
+     */
     public synchronized void save() {
-        this.cleanup();
-        try (final BufferedWriter writer = Files.newBufferedWriter(FileUtil.mkParentDirs(this.cacheFile))) {
-            this.gson.toJson(this.entries, writer);
+        try {
+            if (!this.unsaved.isEmpty()) {
+                try (final BufferedWriter writer = Files.newBufferedWriter(
+                    FileUtil.mkParentDirs(this.journalFile),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+                )) {
+                    @Nullable CacheEntry entry;
+                    while ((entry = this.unsaved.poll()) != null) {
+                        writer.write(format(entry));
+                        writer.newLine();
+                        this.journalLines++;
+                    }
+                }
+            }
+            if (this.shouldCompact()) {
+                this.compact();
+            }
         } catch (final IOException ex) {
             throw new RuntimeException("Failed to save cache", ex);
         }
     }
 
+    private boolean shouldCompact() {
+        return this.journalLines > Math.max(MINIMUM_COMPACT_LINES, 2 * Math.max(this.byId.estimatedSize(), this.byName.estimatedSize()));
+    }
+
+    private void compact() throws IOException {
+        this.unsaved.clear();
+        final Set<CacheEntry> live = this.liveEntries();
+        final StringBuilder snapshot = new StringBuilder(live.size() * 64);
+        for (final CacheEntry entry : live) {
+            snapshot.append(format(entry)).append('\n');
+        }
+        FileUtil.writeAtomically(this.journalFile, snapshot.toString());
+        this.journalLines = live.size();
+    }
+
+    private Set<CacheEntry> liveEntries() {
+        this.byId.cleanUp();
+        this.byName.cleanUp();
+        final Set<CacheEntry> live = new HashSet<>(this.byId.asMap().values());
+        live.addAll(this.byName.asMap().values());
+        return live;
+    }
+
+    private static String format(final CacheEntry entry) {
+        return entry.updated() + "\t" + (entry.uuid() == null ? NULL : entry.uuid()) + "\t" + (entry.name() == null ? NULL : entry.name());
+    }
+
+    private static @Nullable CacheEntry parse(final String line) {
+        final String[] parts = line.split("\t", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new CacheEntry(
+                parts[1].equals(NULL) ? null : UUID.fromString(parts[1]),
+                parts[2].equals(NULL) ? null : parts[2],
+                Long.parseLong(parts[0])
+            );
+        } catch (final IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static final class EntryExpiry<K> implements Expiry<K, CacheEntry> {
+
+        @Override
+        public long expireAfterCreate(final K key, final CacheEntry value, final long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expiresAt() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(final K key, final CacheEntry value, final long currentTime, final long currentDuration) {
+            return this.expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final K key, final CacheEntry value, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
 }
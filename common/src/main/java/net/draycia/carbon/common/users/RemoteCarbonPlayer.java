@@ -0,0 +1,139 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.MembersInjector;
+import com.google.inject.Singleton;
+import java.util.List;
+import java.util.Optional;
+import net.draycia.carbon.api.users.CarbonPlayer;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
+import net.draycia.carbon.common.util.EmptyAudienceWithPointers;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.audience.ForwardingAudience;
+import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A player on another server, built from the {@link SenderSnapshot} of a cross-server message.
+ *
+ * <p>Never stored in or loaded from the user manager. Changes made to it are not persisted.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class RemoteCarbonPlayer extends WrappedCarbonPlayer implements ForwardingAudience.Single {
+
+    private final SenderSnapshot snapshot;
+
+    private RemoteCarbonPlayer(final CarbonPlayerCommon carbonPlayerCommon, final SenderSnapshot snapshot) {
+        super(carbonPlayerCommon);
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public @NotNull Audience audience() {
+        return EmptyAudienceWithPointers.forCarbonPlayer(this);
+    }
+
+    @Override
+    public String username() {
+        return this.snapshot.username();
+    }
+
+    @Override
+    public Component displayName() {
+        return this.snapshot.displayName();
+    }
+
+    @Override
+    protected Optional<Component> platformDisplayName() {
+        return Optional.of(this.snapshot.displayName());
+    }
+
+    @Override
+    public boolean hasPermission(final String permission) {
+        // Permissions are only checked on the origin server
+        return false;
+    }
+
+    @Override
+    public String primaryGroup() {
+        return this.snapshot.primaryGroup();
+    }
+
+    @Override
+    public List<String> groups() {
+        return this.snapshot.groups();
+    }
+
+    @Override
+    public boolean vanished() {
+        return this.snapshot.vanished();
+    }
+
+    @Override
+    public boolean online() {
+        return false;
+    }
+
+    @Override
+    public double distanceSquaredFrom(final CarbonPlayer other) {
+        return -1;
+    }
+
+    @Override
+    public boolean sameWorldAs(final CarbonPlayer other) {
+        return false;
+    }
+
+    @Singleton
+    public static final class Factory {
+
+        private final MembersInjector<CarbonPlayerCommon> membersInjector;
+
+        @Inject
+        private Factory(final Injector injector) {
+            this.membersInjector = injector.getMembersInjector(CarbonPlayerCommon.class);
+        }
+
+        public RemoteCarbonPlayer create(final SenderSnapshot snapshot) {
+            final CarbonPlayerCommon common = new CarbonPlayerCommon(
+                snapshot.muted(),
+                snapshot.deafened(),
+                null,
+                snapshot.username(),
+                snapshot.id(),
+                null,
+                null,
+                null,
+                false,
+                false,
+                snapshot.partyId()
+            );
+            this.membersInjector.injectMembers(common);
+            return new RemoteCarbonPlayer(common, snapshot);
+        }
+
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.draycia.carbon.common.DataDirectory;
+import net.draycia.carbon.common.config.ConfigManager;
+import net.draycia.carbon.common.config.PrimaryConfig;
+import net.draycia.carbon.common.util.ConcurrentUtil;
+import net.draycia.carbon.common.util.FileUtil;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Copies all users and parties from one storage type to another.
+ *
+ * <p>Ids are streamed from the source in pages, the records of each page are loaded in parallel while the previous
+ * page is written to the target in one batch. Progress is checkpointed to the data directory after every page,
+ * so an interrupted migration resumes where it stopped when started again with the same arguments.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class StorageMigration {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int LOADER_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final UserManagerFactory userManagerFactory;
+    private final UserManagerInternal<CarbonPlayerCommon> backingManager;
+    private final ConfigManager configManager;
+    private final Logger logger;
+    private final Path dataDirectory;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Inject
+    private StorageMigration(
+        final UserManagerFactory userManagerFactory,
+        final @Backing UserManagerInternal<CarbonPlayerCommon> backingManager,
+        final ConfigManager configManager,
+        final Logger logger,
+        final @DataDirectory Path dataDirectory
+    ) {
+        this.userManagerFactory = userManagerFactory;
+        this.backingManager = backingManager;
+        this.configManager = configManager;
+        this.logger = logger;
+        this.dataDirectory = dataDirectory;
+    }
+
+    public boolean running() {
+        return this.running.get();
+    }
+
+    /**
+     * Checks whether two storage types read their connection from the same settings, in which case they would
+     * point at the same database and cannot be migrated between.
+     *
+     * @param from source storage type
+     * @param to   target storage type
+     * @return whether both types use the configured database settings
+     */
+    public static boolean sharesDatabaseSettings(final PrimaryConfig.StorageType from, final PrimaryConfig.StorageType to) {
+        return usesDatabaseSettings(from) && usesDatabaseSettings(to);
+    }
+
+    private static boolean usesDatabaseSettings(final PrimaryConfig.StorageType type) {
+        return type == PrimaryConfig.StorageType.MYSQL || type == PrimaryConfig.StorageType.PSQL;
+    }
+
+    /**
+     * Starts migrating from {@code from} to {@code to} on a new thread.
+     *
+     * @param from     source storage type
+     * @param to       target storage type
+     * @param progress receives the running totals every few seconds
+     * @return future completed with the final totals, or {@code null} when a migration is already running
+     */
+    public @Nullable CompletableFuture<Progress> start(
+        final PrimaryConfig.StorageType from,
+        final PrimaryConfig.StorageType to,
+        final Consumer<Progress> progress
+    ) {
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot migrate " + from + " storage to itself");
+        }
+        if (sharesDatabaseSettings(from, to)) {
+            throw new IllegalArgumentException("Cannot migrate " + from + " storage to " + to + ", both use the same database settings");
+        }
+        if (!this.running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        final CompletableFuture<Progress> future = new CompletableFuture<>();
+        ConcurrentUtil.carbonThreadFactory(this.logger, "Storage Migration").newThread(() -> {
+            try {
+                future.complete(this.migrate(from, to, progress));
+            } catch (final Throwable thr) {
+                future.completeExceptionally(thr);
+            } finally {
+                this.running.set(false);
+            }
+        }).start();
+        return future;
+    }
+
+    private Progress migrate(
+        final PrimaryConfig.StorageType from,
+        final PrimaryConfig.StorageType to,
+        final Consumer<Progress> progress
+    ) throws IOException {
+        final Path checkpointFile = this.dataDirectory.resolve(("migration-" + from + "-" + to + ".properties").toLowerCase(Locale.ROOT));
+        final Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+        if (checkpoint.usersAfter != null || checkpoint.partiesAfter != null) {
+            this.logger.info("Resuming {} -> {} migration from checkpoint ({} users, {} parties already copied)", from, to, checkpoint.users, checkpoint.parties);
+        }
+
+        final List<CachingUserManager> opened = new ArrayList<>();
+        final ExecutorService loaders = Executors.newFixedThreadPool(LOADER_THREADS, ConcurrentUtil.carbonThreadFactory(this.logger, "Storage Migration Loader"));
+        try {
+            final CachingUserManager source = this.manager(from, opened);
+            final CachingUserManager target = this.manager(to, opened);
+            final long[] lastReport = {System.nanoTime()};
+            final Runnable pageWritten = () -> {
+                checkpoint.write(checkpointFile);
+                if (System.nanoTime() - lastReport[0] >= PROGRESS_INTERVAL) {
+                    lastReport[0] = System.nanoTime();
+                    progress.accept(checkpoint.progress());
+                }
+            };
+
+            copy(source.userIds(checkpoint.usersAfter, PAGE_SIZE), source::loadOrCreate, target::saveAllSync, loaders, (last, count) -> {
+                checkpoint.usersAfter = last;
+                checkpoint.users += count;
+                pageWritten.run();
+            });
+            copy(source.partyIds(checkpoint.partiesAfter, PAGE_SIZE), source::loadParty, target::saveAllPartiesSync, loaders, (last, count) -> {
+                checkpoint.partiesAfter = last;
+                checkpoint.parties += count;
+                pageWritten.run();
+            });
+        } finally {
+            ConcurrentUtil.shutdownExecutor(loaders, TimeUnit.SECONDS, 5);
+            for (final CachingUserManager manager : opened) {
+                manager.shutdown();
+            }
+        }
+
+        Files.deleteIfExists(checkpointFile);
+        return checkpoint.progress();
+    }
+
+    private CachingUserManager manager(final PrimaryConfig.StorageType type, final List<CachingUserManager> opened) throws IOException {
+        // Share the live manager instead of opening a second handle to the same files or pool
+        if (type == this.configManager.primaryConfig().storageType()) {
+            return (CachingUserManager) this.backingManager;
+        }
+        final CachingUserManager manager = this.userManagerFactory.create(type, false);
+        opened.add(manager);
+        return manager;
+    }
+
+    private static <T> void copy(
+        final Iterator<List<UUID>> pages,
+        final Function<UUID, @Nullable T> load,
+        final Consumer<List<T>> save,
+        final ExecutorService loaders,
+        final PageListener written
+    ) {
+        @Nullable CompletableFuture<Page<T>> pending = loadNext(pages, load, loaders);
+        while (pending != null) {
+            final Page<T> page = pending.join();
+            // Prefetch the next page while this one is written
+            pending = loadNext(pages, load, loaders);
+            save.accept(page.values());
+            written.written(page.last(), page.values().size());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> @Nullable CompletableFuture<Page<T>> loadNext(
+        final Iterator<List<UUID>> pages,
+        final Function<UUID, @Nullable T> load,
+        final ExecutorService loaders
+    ) {
+        if (!pages.hasNext()) {
+            return null;
+        }
+        final List<UUID> ids = pages.next();
+        final CompletableFuture<@Nullable T>[] loads = ids.stream()
+            .map(id -> CompletableFuture.supplyAsync(() -> load.apply(id), loaders))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(loads).thenApply($ -> {
+            final List<T> values = new ArrayList<>(loads.length);
+            for (final CompletableFuture<@Nullable T> future : loads) {
+                final @Nullable T value = future.join();
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            return new Page<>(ids.get(ids.size() - 1), values);
+        });
+    }
+
+    public record Progress(int users, int parties) {
+    }
+
+    private record Page<T>(UUID last, List<T> values) {
+    }
+
+    @FunctionalInterface
+    private interface PageListener {
+
+        void written(UUID last, int count);
+
+    }
+
+    private static final class Checkpoint {
+
+        private @Nullable UUID usersAfter;
+        private @Nullable UUID partiesAfter;
+        private int users;
+        private int parties;
+
+        static Checkpoint read(final Path file) throws IOException {
+            final Checkpoint checkpoint = new Checkpoint();
+            if (!Files.isRegularFile(file)) {
+                return checkpoint;
+            }
+            final Properties properties = new Properties();
+            try (final Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            checkpoint.usersAfter = parse(properties.getProperty("users-after"));
+            checkpoint.partiesAfter = parse(properties.getProperty("parties-after"));
+            checkpoint.users = Integer.parseInt(properties.getProperty("users", "0"));
+            checkpoint.parties = Integer.parseInt(properties.getProperty("parties", "0"));
+            return checkpoint;
+        }
+
+        void write(final Path file) {
+            final Properties properties = new Properties();
+            if (this.usersAfter != null) {
+                properties.setProperty("users-after", this.usersAfter.toString());
+            }
+            if (this.partiesAfter != null) {
+                properties.setProperty("parties-after", this.partiesAfter.toString());
+            }
+            properties.setProperty("users", Integer.toString(this.users));
+            properties.setProperty("parties", Integer.toString(this.parties));
+            try {
+                final StringWriter writer = new StringWriter();
+                properties.store(writer, null);
+                FileUtil.writeAtomically(file, writer.toString());
+            } catch (final IOException ex) {
+                throw new RuntimeException("Failed to write migration checkpoint to " + file, ex);
+            }
+        }
+
+        Progress progress() {
+            return new Progress(this.users, this.parties);
+        }
+
+        private static @Nullable UUID parse(final @Nullable String value) {
+            return value == null ? null : UUID.fromString(value);
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import net.draycia.carbon.common.DataDirectory;
+import net.draycia.carbon.common.config.ConfigManager;
+import net.draycia.carbon.common.config.DatabaseSettings;
+import net.draycia.carbon.common.config.PrimaryConfig;
+import net.draycia.carbon.common.users.db.DatabaseUserManager;
+import net.draycia.carbon.common.users.db.argument.BinaryUUIDArgumentFactory;
+import net.draycia.carbon.common.users.db.mapper.BinaryUUIDColumnMapper;
+import net.draycia.carbon.common.users.db.mapper.NativeUUIDColumnMapper;
+import net.draycia.carbon.common.users.json.JSONUserManager;
+import net.draycia.carbon.common.users.mvstore.MVStoreUserManager;
+import net.draycia.carbon.common.util.FileUtil;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.jdbi.v3.core.h2.H2DatabasePlugin;
+import org.jdbi.v3.postgres.PostgresPlugin;
+
+/**
+ * Creates {@link CachingUserManager}s for a {@link PrimaryConfig.StorageType}.
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class UserManagerFactory {
+
+    private final Path dataDirectory;
+    private final Injector injector;
+
+    @Inject
+    private UserManagerFactory(
+        final @DataDirectory Path dataDirectory,
+        final Injector injector
+    ) {
+        this.dataDirectory = dataDirectory;
+        this.injector = injector;
+    }
+
+    public CachingUserManager create(final PrimaryConfig.StorageType storageType) throws IOException {
+        return this.create(storageType, true);
+    }
+
+    /**
+     * Creates a user manager for {@code storageType}.
+     *
+     * @param storageType storage type
+     * @param primary     whether this is the configured storage, {@code false} for storage opened by a migration
+     * @return user manager
+     * @throws IOException when the storage cannot be opened
+     */
+    public CachingUserManager create(final PrimaryConfig.StorageType storageType, final boolean primary) throws IOException {
+        return switch (storageType) {
+            case MYSQL -> this.injector.getInstance(DatabaseUserManager.Factory.class).create(
+                storageType,
+                "queries/migrations/mysql",
+                jdbi -> jdbi.registerArgument(new BinaryUUIDArgumentFactory())
+                    .registerColumnMapper(UUID.class, new BinaryUUIDColumnMapper()),
+                primary
+            );
+            case PSQL -> this.injector.getInstance(DatabaseUserManager.Factory.class).create(
+                storageType,
+                "queries/migrations/postgresql",
+                jdbi -> jdbi.registerColumnMapper(UUID.class, new NativeUUIDColumnMapper())
+                    .installPlugin(new PostgresPlugin()),
+                primary
+            );
+            case H2 -> this.injector.getInstance(DatabaseUserManager.Factory.class).create(
+                storageType,
+                "queries/migrations/h2",
+                jdbi -> jdbi.installPlugin(new H2DatabasePlugin()),
+                // H2 has no connection settings of its own, but keeps using the configured pool settings
+                new DatabaseSettings("jdbc:h2:" + FileUtil.mkParentDirs(this.dataDirectory.resolve("users/userdata-h2")).toAbsolutePath() + ";MODE=MySQL", "", "",
+                    this.injector.getInstance(ConfigManager.class).primaryConfig().databaseSettings().connectionPool()),
+                primary
+            );
+            case JSON -> this.injector.getInstance(JSONUserManager.class);
+            case MVSTORE -> this.injector.getInstance(MVStoreUserManager.class);
+        };
+    }
+
+}
@@ -19,16 +19,20 @@
  */
 package net.draycia.carbon.common.users.db;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import net.draycia.carbon.api.CarbonChat;
 import net.draycia.carbon.api.CarbonServer;
@@ -36,8 +40,10 @@ import net.draycia.carbon.api.channels.ChannelRegistry;
 import net.draycia.carbon.api.channels.ChatChannel;
 import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.config.DatabaseSettings;
+import net.draycia.carbon.common.config.PrimaryConfig;
 import net.draycia.carbon.common.messaging.MessagingManager;
 import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
 import net.draycia.carbon.common.users.CachingUserManager;
 import net.draycia.carbon.common.users.CarbonPlayerCommon;
 import net.draycia.carbon.common.users.PartyImpl;
@@ -50,6 +56,7 @@ import net.draycia.carbon.common.users.db.mapper.PartyRowMapper;
 import net.draycia.carbon.common.users.db.mapper.PlayerRowMapper;
 import net.draycia.carbon.common.util.ConcurrentUtil;
 import net.draycia.carbon.common.util.SQLDrivers;
+import net.draycia.carbon.common.util.StartupPhases;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
@@ -64,20 +71,18 @@ import org.flywaydb.core.api.logging.LogFactory;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.PreparedBatch;
-import org.jdbi.v3.core.statement.Update;
+import org.jdbi.v3.core.statement.SqlStatement;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 
 @DefaultQualifier(NonNull.class)
 public final class DatabaseUserManager extends CachingUserManager {
 
-    private final Jdbi jdbi;
+    private final CompletableFuture<Database> database;
     private final QueriesLocator locator;
     private final ChannelRegistry channelRegistry;
-    private final HikariDataSource dataSource;
 
     private DatabaseUserManager(
-        final Jdbi jdbi,
-        final HikariDataSource dataSource,
+        final CompletableFuture<Database> database,
         final QueriesLocator locator,
         final Logger logger,
         final ProfileResolver profileResolver,
@@ -95,15 +100,14 @@ public final class DatabaseUserManager extends CachingUserManager {
             packetFactory,
             server
         );
-        this.jdbi = jdbi;
-        this.dataSource = dataSource;
+        this.database = database;
         this.locator = locator;
         this.channelRegistry = channelRegistry;
     }
 
     @Override
     public CarbonPlayerCommon loadOrCreate(final UUID uuid) {
-        return this.jdbi.withHandle(handle -> {
+        return this.jdbi().withHandle(handle -> {
             final @Nullable CarbonPlayerCommon carbonPlayerCommon = handle.createQuery(this.locator.query("select-player"))
                 .bind("id", uuid)
                 .mapTo(CarbonPlayerCommon.class)
@@ -135,7 +139,7 @@ public final class DatabaseUserManager extends CachingUserManager {
 
     @Override
     public void saveSync(final CarbonPlayerCommon player) {
-        this.jdbi.useTransaction(handle -> {
+        this.jdbi().useTransaction(handle -> {
             final int inserted = this.bindPlayerArguments(handle.createUpdate(this.locator.query("insert-player")), player).execute();
             if (inserted != 1) {
                 this.bindPlayerArguments(handle.createUpdate(this.locator.query("update-player")), player).execute();
@@ -170,7 +174,7 @@ public final class DatabaseUserManager extends CachingUserManager {
 
     @Override
     protected @Nullable PartyImpl loadParty(final UUID uuid) {
-        return this.jdbi.withHandle(handle -> {
+        return this.jdbi().withHandle(handle -> {
             final @Nullable PartyImpl party = this.selectParty(handle, uuid);
             if (party == null) {
                 return null;
@@ -197,14 +201,11 @@ public final class DatabaseUserManager extends CachingUserManager {
 
     @Override
     protected void saveSync(final PartyImpl party, final Map<UUID, PartyImpl.ChangeType> changes) {
-        this.jdbi.useTransaction(handle -> {
-            final @Nullable PartyImpl existing = this.selectParty(handle, party.id());
-            if (existing == null) {
-                handle.createUpdate(this.locator.query("insert-party"))
-                    .bind("partyid", party.id())
-                    .bind("name", party.serializedName())
-                    .execute();
-            }
+        this.jdbi().useTransaction(handle -> {
+            handle.createUpdate(this.locator.query("insert-party"))
+                .bind("partyid", party.id())
+                .bind("name", party.serializedName())
+                .execute();
 
             @Nullable PreparedBatch add = null;
             @Nullable PreparedBatch remove = null;
@@ -237,26 +238,108 @@ public final class DatabaseUserManager extends CachingUserManager {
 
     @Override
     public void disbandSync(final UUID id) {
-        this.jdbi.useHandle(handle -> {
+        this.jdbi().useHandle(handle -> {
             handle.createUpdate(this.locator.query("drop-party")).bind("partyid", id).execute();
             handle.createUpdate(this.locator.query("clear-party-members")).bind("partyid", id).execute();
         });
     }
 
+    @Override
+    protected void saveAllSync(final List<CarbonPlayerCommon> players) {
+        if (players.isEmpty()) {
+            return;
+        }
+
+        this.jdbi().useTransaction(handle -> {
+            final PreparedBatch upsert = handle.prepareBatch(this.locator.query("upsert-player"));
+            final PreparedBatch clearIgnores = handle.prepareBatch(this.locator.query("clear-ignores"));
+            final PreparedBatch clearLeftChannels = handle.prepareBatch(this.locator.query("clear-leftchannels"));
+            final PreparedBatch ignores = handle.prepareBatch(this.locator.query("save-ignores"));
+            final PreparedBatch leftChannels = handle.prepareBatch(this.locator.query("save-leftchannels"));
+
+            for (final CarbonPlayerCommon player : players) {
+                this.bindPlayerArguments(upsert, player).add();
+                clearIgnores.bind("id", player.uuid()).add();
+                clearLeftChannels.bind("id", player.uuid()).add();
+                for (final UUID ignoredPlayer : player.ignoring()) {
+                    ignores.bind("id", player.uuid()).bind("ignoredplayer", ignoredPlayer).add();
+                }
+                for (final Key leftChannel : player.leftChannels()) {
+                    leftChannels.bind("id", player.uuid()).bind("channel", leftChannel).add();
+                }
+            }
+
+            upsert.execute();
+            clearIgnores.execute();
+            clearLeftChannels.execute();
+            if (ignores.size() > 0) {
+                ignores.execute();
+            }
+            if (leftChannels.size() > 0) {
+                leftChannels.execute();
+            }
+        });
+    }
+
+    @Override
+    protected Iterator<List<UUID>> userIds(final @Nullable UUID after, final int pageSize) {
+        return this.keysetPages("select-player-ids", "select-player-ids-after", after, pageSize);
+    }
+
+    @Override
+    protected Iterator<List<UUID>> partyIds(final @Nullable UUID after, final int pageSize) {
+        return this.keysetPages("select-party-ids", "select-party-ids-after", after, pageSize);
+    }
+
+    // Keyset pagination, each page is one indexed range scan no matter how deep into the table it is
+    private Iterator<List<UUID>> keysetPages(final String firstQuery, final String afterQuery, final @Nullable UUID after, final int pageSize) {
+        return new AbstractIterator<>() {
+            private @Nullable UUID cursor = after;
+
+            @Override
+            protected @Nullable List<UUID> computeNext() {
+                final @Nullable UUID from = this.cursor;
+                final List<UUID> page = DatabaseUserManager.this.jdbi().withHandle(handle -> {
+                    if (from == null) {
+                        return handle.createQuery(DatabaseUserManager.this.locator.query(firstQuery))
+                            .bind("limit", pageSize)
+                            .mapTo(UUID.class)
+                            .list();
+                    }
+                    return handle.createQuery(DatabaseUserManager.this.locator.query(afterQuery))
+                        .bind("after", from)
+                        .bind("limit", pageSize)
+                        .mapTo(UUID.class)
+                        .list();
+                });
+                if (page.isEmpty()) {
+                    return this.endOfData();
+                }
+                this.cursor = page.get(page.size() - 1);
+                return page;
+            }
+        };
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
-        this.dataSource.close();
+        this.database.thenAccept(database -> database.dataSource().close());
+    }
+
+    // Waits for the pool and migrations when a query comes in while they are still starting up
+    private Jdbi jdbi() {
+        return this.database.join().jdbi();
     }
 
-    private Update bindPlayerArguments(final Update update, final CarbonPlayerCommon player) {
+    private <S extends SqlStatement<S>> S bindPlayerArguments(final S statement, final CarbonPlayerCommon player) {
         final @Nullable Component nickname = player.nicknameRaw();
         @Nullable String nicknameJson = GsonComponentSerializer.gson().serializeOrNull(nickname);
         if (nicknameJson != null && nicknameJson.toCharArray().length > 8192) {
             this.logger.error("Serialized nickname for player {} was too long ({}>8192), it cannot be saved: {}", player.uuid(), nicknameJson.length(), nicknameJson);
             nicknameJson = null;
         }
-        return update.bind("id", player.uuid())
+        return statement.bind("id", player.uuid())
             .bind("muted", player.muted())
             .bind("deafened", player.deafened())
             .bind("selectedchannel", player.selectedChannelKey())
@@ -278,6 +361,8 @@ public final class DatabaseUserManager extends CachingUserManager {
         private final Provider<MessagingManager> messagingManager;
         private final PacketFactory packetFactory;
         private final CarbonServer server;
+        private final StartupPhases startupPhases;
+        private final CarbonMetrics metrics;
 
         @Inject
         private Factory(
@@ -288,7 +373,9 @@ public final class DatabaseUserManager extends CachingUserManager {
             final Injector injector,
             final Provider<MessagingManager> messagingManager,
             final PacketFactory packetFactory,
-            final CarbonServer server
+            final CarbonServer server,
+            final StartupPhases startupPhases,
+            final CarbonMetrics metrics
         ) {
             this.channelRegistry = channelRegistry;
             this.configManager = configManager;
@@ -298,13 +385,62 @@ public final class DatabaseUserManager extends CachingUserManager {
             this.messagingManager = messagingManager;
             this.packetFactory = packetFactory;
             this.server = server;
+            this.startupPhases = startupPhases;
+            this.metrics = metrics;
         }
 
-        public DatabaseUserManager create(final String migrationsLocation, final Consumer<Jdbi> configureJdbi) {
-            return this.create(migrationsLocation, configureJdbi, this.configManager.primaryConfig().databaseSettings());
+        public DatabaseUserManager create(
+            final PrimaryConfig.StorageType storageType,
+            final String migrationsLocation,
+            final Consumer<Jdbi> configureJdbi,
+            final boolean primary
+        ) {
+            return this.create(storageType, migrationsLocation, configureJdbi, this.configManager.primaryConfig().databaseSettings(), primary);
+        }
+
+        /**
+         * Creates a user manager for a database.
+         *
+         * @param storageType        storage type
+         * @param migrationsLocation location of the Flyway migrations
+         * @param configureJdbi      storage type specific Jdbi setup
+         * @param databaseSettings   connection settings
+         * @param primary            whether this is the configured storage rather than one opened for a migration,
+         *                           only the configured storage reports pool metrics
+         * @return user manager
+         */
+        public DatabaseUserManager create(
+            final PrimaryConfig.StorageType storageType,
+            final String migrationsLocation,
+            final Consumer<Jdbi> configureJdbi,
+            final DatabaseSettings databaseSettings,
+            final boolean primary
+        ) {
+            // Connecting and migrating can take seconds, the rest of startup does not wait for it.
+            // Migrations open their storage later, on their own thread.
+            final CompletableFuture<Database> database = primary
+                ? this.startupPhases.supplyAsync(storageType + " storage", () -> this.open(migrationsLocation, configureJdbi, databaseSettings, true))
+                : CompletableFuture.completedFuture(this.open(migrationsLocation, configureJdbi, databaseSettings, false));
+
+            return new DatabaseUserManager(
+                database,
+                new QueriesLocator(storageType),
+                this.logger,
+                this.profileResolver,
+                this.injector,
+                this.messagingManager,
+                this.packetFactory,
+                this.channelRegistry,
+                this.server
+            );
         }
 
-        public DatabaseUserManager create(final String migrationsLocation, final Consumer<Jdbi> configureJdbi, final DatabaseSettings databaseSettings) {
+        private Database open(
+            final String migrationsLocation,
+            final Consumer<Jdbi> configureJdbi,
+            final DatabaseSettings databaseSettings,
+            final boolean registerMetrics
+        ) {
             SQLDrivers.loadFrom(this.getClass().getClassLoader());
 
             final HikariConfig hikariConfig = new HikariConfig();
@@ -314,7 +450,7 @@ public final class DatabaseUserManager extends CachingUserManager {
             hikariConfig.setPoolName("CarbonChat-HikariPool");
             hikariConfig.setThreadFactory(ConcurrentUtil.carbonThreadFactory(this.logger, "HikariPool"));
 
-            final DatabaseSettings.ConnectionPool cfg = Objects.requireNonNull(this.configManager.primaryConfig().databaseSettings().connectionPool());
+            final DatabaseSettings.ConnectionPool cfg = Objects.requireNonNull(databaseSettings.connectionPool());
             hikariConfig.setMaximumPoolSize(cfg.maximumPoolSize);
             hikariConfig.setMinimumIdle(cfg.minimumIdle);
             hikariConfig.setMaxLifetime(cfg.maximumLifetime);
@@ -323,6 +459,15 @@ public final class DatabaseUserManager extends CachingUserManager {
 
             final HikariDataSource dataSource = new HikariDataSource(hikariConfig);
 
+            // Gauges are registered once, a pool opened for a migration would keep them after it closes
+            if (registerMetrics) {
+                final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+                this.metrics.gauge("carbon_storage_pool_connections", "Database pool connections by state", "state", "active", pool::getActiveConnections);
+                this.metrics.gauge("carbon_storage_pool_connections", "Database pool connections by state", "state", "idle", pool::getIdleConnections);
+                this.metrics.gauge("carbon_storage_pool_connections", "Database pool connections by state", "state", "total", pool::getTotalConnections);
+                this.metrics.gauge("carbon_storage_pool_waiting_threads", "Threads waiting for a database connection", pool::getThreadsAwaitingConnection);
+            }
+
             final Flyway flyway = Flyway.configure(CarbonChat.class.getClassLoader())
                 .baselineVersion("0")
                 .baselineOnMigrate(true)
@@ -349,22 +494,14 @@ public final class DatabaseUserManager extends CachingUserManager {
 
             configureJdbi.accept(jdbi);
 
-            return new DatabaseUserManager(
-                jdbi,
-                dataSource,
-                new QueriesLocator(this.configManager.primaryConfig().storageType()),
-                this.logger,
-                this.profileResolver,
-                this.injector,
-                this.messagingManager,
-                this.packetFactory,
-                this.channelRegistry,
-                this.server
-            );
+            return new Database(jdbi, dataSource);
         }
 
     }
 
+    private record Database(Jdbi jdbi, HikariDataSource dataSource) {
+    }
+
     private record CarbonLogCreator(Logger logger) implements LogCreator {
 
         @Override
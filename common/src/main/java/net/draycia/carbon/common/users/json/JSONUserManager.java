@@ -26,15 +26,21 @@ import com.google.inject.Injector;
 import com.google.inject.Provider;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Stream;
 import net.draycia.carbon.api.CarbonServer;
 import net.draycia.carbon.api.channels.ChannelRegistry;
 import net.draycia.carbon.api.channels.ChatChannel;
 import net.draycia.carbon.common.DataDirectory;
 import net.draycia.carbon.common.channels.CarbonChannelRegistry;
+import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.messaging.MessagingManager;
 import net.draycia.carbon.common.messaging.packets.PacketFactory;
 import net.draycia.carbon.common.serialisation.gson.ChatChannelSerializerGson;
@@ -59,6 +65,7 @@ public class JSONUserManager extends CachingUserManager {
     private final Path userDirectory;
     private final Path partyDirectory;
     private final ChannelRegistry channelRegistry;
+    private final boolean compact;
 
     @Inject
     public JSONUserManager(
@@ -71,7 +78,8 @@ public class JSONUserManager extends CachingUserManager {
         final Provider<MessagingManager> messagingManager,
         final PacketFactory packetFactory,
         final CarbonChannelRegistry channelRegistry,
-        final CarbonServer server
+        final CarbonServer server,
+        final ConfigManager configManager
     ) throws IOException {
         super(
             logger,
@@ -84,52 +92,84 @@ public class JSONUserManager extends CachingUserManager {
         this.userDirectory = dataDirectory.resolve("users");
         this.partyDirectory = dataDirectory.resolve("party");
         this.channelRegistry = channelRegistry;
+        this.compact = configManager.primaryConfig().jsonStorageSettings().compact;
 
         Files.createDirectories(this.userDirectory);
         Files.createDirectories(this.partyDirectory);
 
-        this.serializer = GsonComponentSerializer.gson().populator()
+        final GsonBuilder builder = GsonComponentSerializer.gson().populator()
             .apply(new GsonBuilder())
             .registerTypeAdapter(ChatChannel.class, channelSerializer)
             .registerTypeAdapter(UUID.class, uuidSerializer)
-            .registerTypeAdapter(PersistentUserProperty.class, new PersistentUserProperty.Serializer())
-            .setPrettyPrinting()
-            .create();
+            .registerTypeAdapter(PersistentUserProperty.class, new PersistentUserProperty.Serializer());
+        if (this.compact) {
+            builder.registerTypeAdapter(CarbonPlayerCommon.class, new CarbonPlayerCommon.Serializer());
+        } else {
+            builder.setPrettyPrinting();
+        }
+        this.serializer = builder.create();
     }
 
     @Override
     protected CarbonPlayerCommon loadOrCreate(final UUID uuid) {
         final Path userFile = this.userFile(uuid);
+        final Path otherLayoutFile = this.compact ? this.flatUserFile(uuid) : this.shardedUserFile(uuid);
 
-        if (Files.exists(userFile)) {
-            try {
-                final @Nullable CarbonPlayerCommon player;
-                try (final Reader reader = Files.newBufferedReader(userFile)) {
-                    player = this.serializer.fromJson(reader, CarbonPlayerCommon.class);
-                }
+        try {
+            @Nullable CarbonPlayerCommon player = null;
+            if (Files.exists(userFile)) {
+                player = this.readUser(userFile);
+            } else if (Files.exists(otherLayoutFile)) {
+                // Migrate from the other layout, the new file is written before the old one is removed
+                player = this.readUser(otherLayoutFile);
+                FileUtil.writeAtomically(userFile, this.serializer.toJson(player));
+                Files.delete(otherLayoutFile);
+            }
 
-                if (player == null) {
-                    throw new IllegalStateException("Player file found but was empty.");
-                }
-                player.leftChannels().forEach(channel -> {
+            if (player != null) {
+                final CarbonPlayerCommon loaded = player;
+                loaded.leftChannels().forEach(channel -> {
                     if (this.channelRegistry.channel(channel) == null) {
-                        player.joinChannel(channel, true);
+                        loaded.joinChannel(channel, true);
                     }
                 });
 
-                return player;
-            } catch (final IOException exception) {
-                throw new RuntimeException(exception);
+                return loaded;
             }
+        } catch (final IOException exception) {
+            throw new RuntimeException(exception);
         }
 
         return new CarbonPlayerCommon(null, uuid);
     }
 
+    private CarbonPlayerCommon readUser(final Path userFile) throws IOException {
+        final @Nullable CarbonPlayerCommon player;
+        try (final Reader reader = Files.newBufferedReader(userFile)) {
+            player = this.serializer.fromJson(reader, CarbonPlayerCommon.class);
+        }
+
+        if (player == null) {
+            throw new IllegalStateException("Player file found but was empty.");
+        }
+
+        return player;
+    }
+
     private Path userFile(final UUID id) {
+        return this.compact ? this.shardedUserFile(id) : this.flatUserFile(id);
+    }
+
+    private Path flatUserFile(final UUID id) {
         return this.userDirectory.resolve(id + ".json");
     }
 
+    // Two levels of 256 directories each keep directory sizes small on servers with many historical players
+    private Path shardedUserFile(final UUID id) {
+        final String name = id.toString();
+        return this.userDirectory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name + ".json");
+    }
+
     private Path partyFile(final UUID id) {
         return this.partyDirectory.resolve(id + ".json");
     }
@@ -145,7 +185,7 @@ public class JSONUserManager extends CachingUserManager {
                 throw new IllegalStateException("No data to save - toJson returned null or blank.");
             }
 
-            Files.writeString(FileUtil.mkParentDirs(userFile), json);
+            FileUtil.writeAtomically(userFile, json);
         } catch (final IOException exception) {
             throw new RuntimeException("Exception while saving data for player [%s]".formatted(player.username()), exception);
         }
@@ -186,12 +226,57 @@ public class JSONUserManager extends CachingUserManager {
                 throw new IllegalStateException("No data to save - toJson returned null or blank.");
             }
 
-            Files.writeString(FileUtil.mkParentDirs(partyFile), json);
+            FileUtil.writeAtomically(partyFile, json);
         } catch (final IOException exception) {
             throw new RuntimeException("Exception while saving data for party " + party, exception);
         }
     }
 
+    @Override
+    protected Iterator<List<UUID>> userIds(final @Nullable UUID after, final int pageSize) {
+        return pages(walkIds(this.userDirectory), after, pageSize);
+    }
+
+    @Override
+    protected Iterator<List<UUID>> partyIds(final @Nullable UUID after, final int pageSize) {
+        return pages(walkIds(this.partyDirectory), after, pageSize);
+    }
+
+    // Walks the top level and each hashed subdirectory in parallel
+    private static List<UUID> walkIds(final Path directory) {
+        try (final Stream<Path> entries = Files.list(directory)) {
+            return entries.parallel()
+                .flatMap(entry -> {
+                    if (!Files.isDirectory(entry)) {
+                        return Stream.of(entry);
+                    }
+                    try (final Stream<Path> nested = Files.walk(entry)) {
+                        return nested.filter(Files::isRegularFile).toList().stream();
+                    } catch (final IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                })
+                .map(JSONUserManager::parseId)
+                .filter(Objects::nonNull)
+                .sorted()
+                .toList();
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static @Nullable UUID parseId(final Path file) {
+        final String name = file.getFileName().toString();
+        if (!name.endsWith(".json")) {
+            return null;
+        }
+        try {
+            return UUID.fromString(name.substring(0, name.length() - ".json".length()));
+        } catch (final IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
     @Override
     public void disbandSync(final UUID id) {
         try {
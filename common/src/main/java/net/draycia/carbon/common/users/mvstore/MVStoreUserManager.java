@@ -0,0 +1,337 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.users.mvstore;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import net.draycia.carbon.api.CarbonServer;
+import net.draycia.carbon.api.channels.ChatChannel;
+import net.draycia.carbon.common.DataDirectory;
+import net.draycia.carbon.common.channels.CarbonChannelRegistry;
+import net.draycia.carbon.common.messaging.MessagingManager;
+import net.draycia.carbon.common.messaging.packets.PacketFactory;
+import net.draycia.carbon.common.users.CachingUserManager;
+import net.draycia.carbon.common.users.CarbonPlayerCommon;
+import net.draycia.carbon.common.users.PartyImpl;
+import net.draycia.carbon.common.users.ProfileResolver;
+import net.draycia.carbon.common.util.FileUtil;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+/**
+ * Stores users and parties as compact binary records in an embedded H2 {@link MVStore}.
+ *
+ * <p>MVStore is an append-only log of chunks, dead chunks are compacted in the background
+ * and when the store is closed.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public class MVStoreUserManager extends CachingUserManager {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int MUTED = 1;
+    private static final int DEAFENED = 1 << 1;
+    private static final int SPYING = 1 << 2;
+    private static final int IGNORING_DMS = 1 << 3;
+    private static final int HAS_SELECTED_CHANNEL = 1 << 4;
+    private static final int HAS_DISPLAY_NAME = 1 << 5;
+    private static final int HAS_PARTY = 1 << 6;
+
+    private final MVStore store;
+    private final MVMap<UUID, byte[]> users;
+    private final MVMap<UUID, byte[]> parties;
+    private final CarbonChannelRegistry channelRegistry;
+
+    @Inject
+    public MVStoreUserManager(
+        final @DataDirectory Path dataDirectory,
+        final Logger logger,
+        final ProfileResolver profileResolver,
+        final Injector injector,
+        final Provider<MessagingManager> messagingManager,
+        final PacketFactory packetFactory,
+        final CarbonChannelRegistry channelRegistry,
+        final CarbonServer server
+    ) throws IOException {
+        super(
+            logger,
+            profileResolver,
+            injector,
+            messagingManager,
+            packetFactory,
+            server
+        );
+        this.channelRegistry = channelRegistry;
+        this.store = new MVStore.Builder()
+            .fileName(FileUtil.mkParentDirs(dataDirectory.resolve("users/userdata.mvstore")).toAbsolutePath().toString())
+            .open();
+        this.users = this.store.openMap("users");
+        this.parties = this.store.openMap("parties");
+    }
+
+    @Override
+    protected CarbonPlayerCommon loadOrCreate(final UUID uuid) {
+        final byte @Nullable [] record = this.users.get(uuid);
+        if (record == null) {
+            return new CarbonPlayerCommon(null, uuid);
+        }
+
+        try {
+            return this.readPlayer(uuid, record);
+        } catch (final IOException exception) {
+            throw new RuntimeException("Exception while loading data for player [%s]".formatted(uuid), exception);
+        }
+    }
+
+    @Override
+    public void saveSync(final CarbonPlayerCommon player) {
+        try {
+            this.users.put(player.uuid(), writePlayer(player));
+            this.store.commit();
+        } catch (final IOException exception) {
+            throw new RuntimeException("Exception while saving data for player [%s]".formatted(player.username()), exception);
+        }
+    }
+
+    @Override
+    protected @Nullable PartyImpl loadParty(final UUID uuid) {
+        final byte @Nullable [] record = this.parties.get(uuid);
+        if (record == null) {
+            return null;
+        }
+
+        try {
+            return readParty(uuid, record);
+        } catch (final IOException exception) {
+            throw new RuntimeException("Exception while loading data for party [%s]".formatted(uuid), exception);
+        }
+    }
+
+    @Override
+    protected void saveSync(final PartyImpl party, final Map<UUID, PartyImpl.ChangeType> changes) {
+        try {
+            this.parties.put(party.id(), writeParty(party));
+            this.store.commit();
+        } catch (final IOException exception) {
+            throw new RuntimeException("Exception while saving data for party " + party, exception);
+        }
+    }
+
+    @Override
+    protected void disbandSync(final UUID id) {
+        this.parties.remove(id);
+        this.store.commit();
+    }
+
+    @Override
+    protected Iterator<List<UUID>> userIds(final @Nullable UUID after, final int pageSize) {
+        return pages(keys(this.users, after), null, pageSize);
+    }
+
+    @Override
+    protected Iterator<List<UUID>> partyIds(final @Nullable UUID after, final int pageSize) {
+        return pages(keys(this.parties, after), null, pageSize);
+    }
+
+    // Keys in store order, which is stable for a given store
+    private static List<UUID> keys(final MVMap<UUID, byte[]> map, final @Nullable UUID after) {
+        final List<UUID> keys = new ArrayList<>();
+        final Iterator<UUID> iterator = map.keyIterator(after);
+        while (iterator.hasNext()) {
+            final UUID key = iterator.next();
+            if (!key.equals(after)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        this.store.close();
+    }
+
+    private CarbonPlayerCommon readPlayer(final UUID uuid, final byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        readVersion(in);
+
+        final int flags = in.readUnsignedByte();
+        final @Nullable Key selectedChannel = (flags & HAS_SELECTED_CHANNEL) != 0 ? Key.key(readString(in)) : null;
+        final @Nullable Component displayName = (flags & HAS_DISPLAY_NAME) != 0
+            ? GsonComponentSerializer.gson().deserialize(readString(in))
+            : null;
+        final @Nullable UUID party = (flags & HAS_PARTY) != 0 ? readUUID(in) : null;
+
+        final int ignoredCount = in.readInt();
+        final Set<UUID> ignored = new HashSet<>(ignoredCount);
+        for (int i = 0; i < ignoredCount; i++) {
+            ignored.add(readUUID(in));
+        }
+
+        // Channels that no longer exist are dropped
+        final int leftCount = in.readInt();
+        final Set<Key> left = new HashSet<>(leftCount);
+        for (int i = 0; i < leftCount; i++) {
+            final @Nullable ChatChannel channel = this.channelRegistry.channel(Key.key(readString(in)));
+            if (channel != null) {
+                left.add(channel.key());
+            }
+        }
+
+        return new CarbonPlayerCommon(
+            (flags & MUTED) != 0,
+            (flags & DEAFENED) != 0,
+            selectedChannel,
+            null,
+            uuid,
+            displayName,
+            null,
+            null,
+            (flags & SPYING) != 0,
+            (flags & IGNORING_DMS) != 0,
+            party,
+            ignored,
+            left
+        );
+    }
+
+    private static byte[] writePlayer(final CarbonPlayerCommon player) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+
+        final @Nullable Key selectedChannel = player.selectedChannelKey();
+        final @Nullable Component displayName = player.nicknameRaw();
+        final @Nullable UUID party = player.partyId();
+
+        int flags = 0;
+        flags |= player.muted() ? MUTED : 0;
+        flags |= player.deafened() ? DEAFENED : 0;
+        flags |= player.spying() ? SPYING : 0;
+        flags |= player.ignoringDirectMessages() ? IGNORING_DMS : 0;
+        flags |= selectedChannel != null ? HAS_SELECTED_CHANNEL : 0;
+        flags |= displayName != null ? HAS_DISPLAY_NAME : 0;
+        flags |= party != null ? HAS_PARTY : 0;
+        out.writeByte(flags);
+
+        if (selectedChannel != null) {
+            writeString(out, selectedChannel.asString());
+        }
+        if (displayName != null) {
+            writeString(out, GsonComponentSerializer.gson().serialize(displayName));
+        }
+        if (party != null) {
+            writeUUID(out, party);
+        }
+
+        final Set<UUID> ignored = player.ignoring();
+        out.writeInt(ignored.size());
+        for (final UUID id : ignored) {
+            writeUUID(out, id);
+        }
+
+        final List<Key> leftChannels = player.leftChannels();
+        out.writeInt(leftChannels.size());
+        for (final Key channel : leftChannels) {
+            writeString(out, channel.asString());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static PartyImpl readParty(final UUID id, final byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        readVersion(in);
+
+        final PartyImpl party = PartyImpl.create(GsonComponentSerializer.gson().deserialize(readString(in)), id);
+        final int members = in.readInt();
+        for (int i = 0; i < members; i++) {
+            party.rawMembers().add(readUUID(in));
+        }
+        return party;
+    }
+
+    private static byte[] writeParty(final PartyImpl party) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+
+        writeString(out, party.serializedName());
+        final Set<UUID> members = Set.copyOf(party.rawMembers());
+        out.writeInt(members.size());
+        for (final UUID member : members) {
+            writeUUID(out, member);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void readVersion(final DataInputStream in) throws IOException {
+        final byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported record format version " + version);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static UUID readUUID(final DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeUUID(final DataOutputStream out, final UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+}
@@ -21,6 +21,7 @@ package net.draycia.carbon.common.util;
 
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.framework.qual.DefaultQualifier;
 import org.slf4j.Logger;
@@ -36,6 +37,7 @@ public final class CarbonDependencies {
     }
 
     public static Set<Path> resolve(final Path cacheDir) {
+        final long start = System.nanoTime();
         final DependencySet deps = DependencySet.readFromClasspathResource(
             CarbonDependencies.class.getClassLoader(), "carbon-dependencies.txt");
         final DependencyCache cache = new DependencyCache(cacheDir);
@@ -45,6 +47,8 @@ public final class CarbonDependencies {
             files = downloader.resolve(deps, cache).jarFiles();
         }
         cache.cleanup();
+        // Runs before anything else can load, so it is reported here instead of with the startup phases
+        logger.info("Resolved {} libraries in {}ms", files.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         return files;
     }
 
@@ -0,0 +1,108 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Runs an action on a daemon thread whenever files in a directory are created, modified or deleted.
+ *
+ * <p>Events are debounced: the action runs once the directory has been quiet for the settle time, so an editor
+ * saving a file in several writes triggers a single run.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class DirectoryWatcher implements AutoCloseable {
+
+    private static final long SETTLE_MILLIS = 250;
+
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private DirectoryWatcher(final WatchService watchService, final Thread thread) {
+        this.watchService = watchService;
+        this.thread = thread;
+    }
+
+    /**
+     * Starts watching {@code directory}.
+     *
+     * @param logger    logger
+     * @param name      thread name
+     * @param directory directory to watch, must exist
+     * @param action    action to run after changes
+     * @return the watcher, or {@code null} when the file system does not support watching
+     */
+    public static @Nullable DirectoryWatcher watch(final Logger logger, final String name, final Path directory, final Runnable action) {
+        final WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (final IOException | UnsupportedOperationException ex) {
+            logger.warn("Cannot watch '{}' for changes", directory, ex);
+            return null;
+        }
+
+        final Thread thread = ConcurrentUtil.carbonThreadFactory(logger, name).newThread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    // Drain everything that arrives until the directory settles
+                    do {
+                        key.pollEvents();
+                        key.reset();
+                        key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                    } while (key != null);
+                    try {
+                        action.run();
+                    } catch (final RuntimeException ex) {
+                        logger.warn("Exception handling changes in '{}'", directory, ex);
+                    }
+                }
+            } catch (final InterruptedException | ClosedWatchServiceException ignored) {
+            }
+        });
+        thread.start();
+        return new DirectoryWatcher(watchService, thread);
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.watchService.close();
+        } catch (final IOException ignored) {
+        }
+        this.thread.interrupt();
+    }
+
+}
@@ -22,10 +22,13 @@ package net.draycia.carbon.common.util;
 import com.google.common.hash.Hashing;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -116,4 +119,28 @@ public final class FileUtil {
         return path;
     }
 
+    /**
+     * Writes {@code content} to {@code path} by writing a temporary file next to it and moving it into place,
+     * so readers never observe a partially written file.
+     *
+     * <p>Falls back to a non-atomic replace when the file system does not support atomic moves.</p>
+     *
+     * @param path    target file
+     * @param content file content
+     * @throws IOException on I/O error
+     */
+    public static void writeAtomically(final Path path, final String content) throws IOException {
+        final Path temp = Files.createTempFile(mkParentDirs(path).getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.util;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Runs the independent parts of startup concurrently and reports how long each of them took.
+ *
+ * <p>Async phases run on startup threads as soon as the phases they depend on complete. Phases that must stay on the
+ * platform's enabling thread, like command registration, run on the calling thread instead. {@link #complete()}
+ * waits for every phase, logs the startup report and stops the startup threads. No phases can be started after
+ * that.</p>
+ */
+@Singleton
+@DefaultQualifier(NonNull.class)
+public final class StartupPhases {
+
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final long created = System.nanoTime();
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<?>> pending = new CopyOnWriteArrayList<>();
+    private volatile boolean completed;
+
+    @Inject
+    private StartupPhases(final Logger logger) {
+        this.logger = logger;
+        this.executor = Executors.newCachedThreadPool(ConcurrentUtil.carbonThreadFactory(logger, "Startup"));
+    }
+
+    /**
+     * Runs a phase on a startup thread once all of {@code after} completed successfully.
+     *
+     * @param name  phase name for the report
+     * @param task  phase
+     * @param after phases this phase depends on
+     * @param <T>   result type
+     * @return future completed with the phase's result
+     */
+    public <T> CompletableFuture<T> supplyAsync(final String name, final Supplier<T> task, final CompletableFuture<?>... after) {
+        if (this.completed) {
+            throw new IllegalStateException("Startup is complete, cannot start phase " + name);
+        }
+        final CompletableFuture<T> future = CompletableFuture.allOf(after)
+            .thenApplyAsync($ -> this.timed(name, task), this.executor);
+        this.pending.add(future);
+        return future;
+    }
+
+    /**
+     * Runs a phase on a startup thread once all of {@code after} completed successfully.
+     *
+     * @param name  phase name for the report
+     * @param task  phase
+     * @param after phases this phase depends on
+     * @return future completed when the phase is done
+     */
+    public CompletableFuture<Void> runAsync(final String name, final Runnable task, final CompletableFuture<?>... after) {
+        return this.supplyAsync(name, () -> {
+            task.run();
+            return null;
+        }, after);
+    }
+
+    /**
+     * Runs a phase on the calling thread.
+     *
+     * @param name phase name for the report
+     * @param task phase
+     */
+    public void run(final String name, final Runnable task) {
+        this.timed(name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for all async phases, logs the startup report and shuts down the startup threads.
+     *
+     * <p>The first failure of an async phase is rethrown here, so it fails startup like it would have
+     * when the phase still ran in sequence.</p>
+     */
+    public void complete() {
+        this.completed = true;
+        try {
+            CompletableFuture.allOf(this.pending.toArray(CompletableFuture[]::new)).join();
+        } catch (final CompletionException ex) {
+            throw Exceptions.rethrow(ex.getCause() == null ? ex : ex.getCause());
+        } finally {
+            this.pending.clear();
+            this.executor.shutdown();
+            this.report();
+        }
+    }
+
+    private <T> T timed(final String name, final Supplier<T> task) {
+        final long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            if (!this.completed) {
+                this.phases.add(new Phase(name, Thread.currentThread().getName(), start, System.nanoTime()));
+            }
+        }
+    }
+
+    private void report() {
+        final List<Phase> phases = this.phases.stream().sorted(Comparator.comparingLong(Phase::start)).toList();
+        final long sequential = phases.stream().mapToLong(phase -> phase.end() - phase.start()).sum();
+        this.logger.info("Started in {}ms, the {} startup phases took {}ms combined:",
+            millis(System.nanoTime() - this.created), phases.size(), millis(sequential));
+        for (final Phase phase : phases) {
+            this.logger.info("  {}: {}ms, started at +{}ms on {}",
+                phase.name(), millis(phase.end() - phase.start()), millis(phase.start() - this.created), phase.thread());
+        }
+    }
+
+    private static long millis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private record Phase(String name, String thread, long start, long end) {
+    }
+
+}
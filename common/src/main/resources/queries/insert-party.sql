@@ -4,4 +4,4 @@ INSERT INTO carbon_parties(
 ) VALUES (
     :partyid,
     :name
-);
+){!PSQL: ON DUPLICATE KEY UPDATE name = :name}{PSQL: ON CONFLICT (partyid) DO UPDATE SET name = EXCLUDED.name};
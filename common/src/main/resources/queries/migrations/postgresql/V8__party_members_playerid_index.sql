@@ -0,0 +1 @@
+CREATE INDEX carbon_party_members_playerid ON carbon_party_members (playerid);
@@ -0,0 +1 @@
+SELECT partyid FROM carbon_parties WHERE (partyid > :after) ORDER BY partyid LIMIT :limit;
@@ -0,0 +1 @@
+SELECT partyid FROM carbon_parties ORDER BY partyid LIMIT :limit;
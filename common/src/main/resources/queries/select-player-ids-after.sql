@@ -0,0 +1 @@
+SELECT id FROM carbon_users WHERE (id > :after) ORDER BY id LIMIT :limit;
@@ -0,0 +1 @@
+SELECT id FROM carbon_users ORDER BY id LIMIT :limit;
@@ -0,0 +1,245 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.draycia.carbon.common.messaging.packets.ChatMessagePacket;
+import net.draycia.carbon.common.messaging.packets.PacketCompression;
+import net.draycia.carbon.common.messaging.packets.PacketFormat;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
+import net.draycia.carbon.common.util.ConcurrentUtil;
+import net.draycia.carbon.common.util.ExceptionLoggingScheduledThreadPoolExecutor;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.text.Component;
+import ninja.egg82.messenger.handler.AbstractMessagingHandler;
+import ninja.egg82.messenger.handler.MessagingHandlerImpl;
+import ninja.egg82.messenger.packets.Packet;
+import ninja.egg82.messenger.services.PacketService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Simulates a network of headless Carbon nodes on a {@link LocalBroker} and reports cross-server chat latency,
+ * packet rates and CPU time per node.
+ *
+ * <p>Each node runs the same packet, compression and flushing code as a real server, with fake players chatting at
+ * a fixed rate, and reads received packets on its own thread. Run it with the {@code clusterSimulation} task.
+ * Arguments, all optional: nodes, players per node, messages per second per node, seconds, latency in
+ * milliseconds, loss rate.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class LocalClusterSimulation {
+
+    private static final Key CHANNEL = Key.key("carbon", "global");
+    private static final byte PROTOCOL_VERSION = 3;
+
+    private LocalClusterSimulation() {
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int nodeCount = intArg(args, 0, 4);
+        final int players = intArg(args, 1, 100);
+        final int rate = intArg(args, 2, 200);
+        final int seconds = intArg(args, 3, 30);
+        final int latency = intArg(args, 4, 0);
+        final double loss = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+
+        final Logger logger = LogManager.getLogger("CarbonChat Cluster Simulation");
+        MessagingManager.registerPackets();
+
+        final LocalBroker broker = new LocalBroker(logger);
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(new Node(new PacketService(4, false, PROTOCOL_VERSION), logger, broker, i, players, latency, loss));
+        }
+
+        logger.info("Simulating {} nodes with {} players each, {} messages/s per node for {}s ({}ms latency, {} loss)",
+            nodeCount, players, rate, seconds, latency, loss);
+        final long start = System.nanoTime();
+        for (final Node node : nodes) {
+            node.start(rate);
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        for (final Node node : nodes) {
+            node.stopSending();
+        }
+        // Let in-flight packets arrive
+        Thread.sleep(latency + 1000L);
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+
+        for (final Node node : nodes) {
+            node.stopReceiving();
+            node.report(logger, elapsed);
+        }
+        final LocalBroker.Stats stats = broker.stats();
+        logger.info("Broker: {} published ({}/s), {} delivered, {} dropped, {} KiB serialized",
+            stats.published(), Math.round(stats.published() / elapsed), stats.delivered(), stats.dropped(), stats.bytes() / 1024);
+        broker.shutdown();
+    }
+
+    private static int intArg(final String[] args, final int index, final int def) {
+        return args.length > index ? Integer.parseInt(args[index]) : def;
+    }
+
+    private static final class Node extends AbstractMessagingHandler {
+
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final PacketService packets;
+        private final int index;
+        private final UUID serverId = UUID.randomUUID();
+        private final List<SenderSnapshot> players = new ArrayList<>();
+        private final ScheduledExecutorService executor;
+        private final ExecutorService receiver;
+        private final PacketFormat format = PacketFormat.current(new PacketCompression(128));
+        private final LocalMessagingService service;
+        private final AdaptiveFlusher flusher;
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        Node(
+            final PacketService packets,
+            final Logger logger,
+            final LocalBroker broker,
+            final int index,
+            final int players,
+            final int latency,
+            final double loss
+        ) {
+            super(packets);
+            this.packets = packets;
+            this.index = index;
+            PacketFormat.register(this.serverId, this.format);
+            // Sending, serializing, flushing and reading received packets run on the node's own threads, their CPU
+            // time is added up when they exit. The broker thread only hands packets over.
+            final ThreadFactory factory = ConcurrentUtil.carbonThreadFactory(logger, "Node " + index);
+            final ThreadFactory measured = runnable -> factory.newThread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    this.cpuNanos.add(THREADS.getCurrentThreadCpuTime());
+                }
+            });
+            this.executor = new ExceptionLoggingScheduledThreadPoolExecutor(2, measured, logger);
+            this.receiver = Executors.newSingleThreadExecutor(measured);
+
+            final MessagingHandlerImpl handlerImpl = new MessagingHandlerImpl(packets);
+            handlerImpl.addHandler(this);
+            this.service = new LocalMessagingService(broker, "node-" + index, this.serverId, handlerImpl, latency, loss, this.receiver);
+            packets.addMessenger(this.service);
+            this.flusher = new AdaptiveFlusher(packets, this.executor, 5, TimeUnit.MILLISECONDS, 64);
+
+            for (int i = 0; i < players; i++) {
+                this.players.add(SimulatedChat.player(index, i, ThreadLocalRandom.current()));
+            }
+        }
+
+        void start(final int rate) {
+            final long period = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+            this.executor.scheduleAtFixedRate(this::send, period, period, TimeUnit.NANOSECONDS);
+        }
+
+        private void send() {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final SenderSnapshot player = this.players.get(random.nextInt(this.players.size()));
+            // Messages end with the send time, so receivers can measure end to end latency
+            final Component message = SimulatedChat.message(player, random, System.nanoTime());
+            this.flusher.queue(new ChatMessagePacket(this.serverId, player, "carbon.channel.global", CHANNEL, message), false);
+            this.sent.increment();
+        }
+
+        @Override
+        protected boolean handlePacket(final Packet packet) {
+            if (!(packet instanceof ChatMessagePacket chat)) {
+                return false;
+            }
+            final long sentAt = SimulatedChat.sentAt(chat.message());
+            this.latencies.add(System.nanoTime() - sentAt);
+            this.received.increment();
+            return true;
+        }
+
+        void stopSending() {
+            this.executor.shutdown();
+            try {
+                this.executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (final InterruptedException ignored) {
+            }
+            this.packets.flushQueue();
+        }
+
+        void report(final Logger logger, final double elapsed) {
+            final List<Long> sorted;
+            synchronized (this.latencies) {
+                sorted = new ArrayList<>(this.latencies);
+            }
+            Collections.sort(sorted);
+            final AdaptiveFlusher.Stats flushes = this.flusher.stats();
+            logger.info("Node {}: sent {} ({}/s), received {} ({}/s), latency p50 {}ms p99 {}ms max {}ms, {} flushes (average {} packets), CPU {}ms",
+                this.index,
+                this.sent.sum(), Math.round(this.sent.sum() / elapsed),
+                this.received.sum(), Math.round(this.received.sum() / elapsed),
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1)),
+                flushes.flushes(), String.format("%.1f", flushes.averageFlushSize()),
+                TimeUnit.NANOSECONDS.toMillis(this.cpuNanos.sum()));
+        }
+
+        void stopReceiving() {
+            this.service.close();
+            this.packets.shutdown();
+            PacketFormat.unregister(this.serverId, this.format);
+            this.receiver.shutdown();
+            try {
+                this.receiver.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (final InterruptedException ignored) {
+            }
+        }
+
+        private static long percentile(final List<Long> sorted, final double percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+        }
+
+        private static String millis(final long nanos) {
+            return String.format("%.2f", nanos / 1e6);
+        }
+
+    }
+
+}
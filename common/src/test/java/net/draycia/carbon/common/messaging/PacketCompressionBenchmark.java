@@ -0,0 +1,195 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.draycia.carbon.common.messaging.packets.ChatMessagePacket;
+import net.draycia.carbon.common.messaging.packets.PacketCompression;
+import net.draycia.carbon.common.messaging.packets.PacketFormat;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
+import net.kyori.adventure.key.Key;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Measures how small the chat traffic of the cluster simulation gets on the wire, without compression, compressed
+ * without a dictionary, and compressed with the bundled dictionary, at the default compression threshold.
+ *
+ * <p>With {@code --train <file>} it instead trains a dictionary on the same traffic and writes it to the file, which
+ * is how {@code messaging/packet-compression.dict} is made. Training and measuring use different messages. Run it
+ * with the {@code compressionBenchmark} task. Arguments, all optional: packets, {@code --train <file>}.</p>
+ */
+@DefaultQualifier(NonNull.class)
+public final class PacketCompressionBenchmark {
+
+    private static final Key CHANNEL = Key.key("carbon", "global");
+    private static final int THRESHOLD = 128;
+    // The level PacketCompression compresses at
+    private static final int LEVEL = 3;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+    private static final int NODES = 4;
+    private static final int PLAYERS = 100;
+    private static final long TRAINING_SEED = 1;
+    private static final long BENCHMARK_SEED = 2;
+
+    private PacketCompressionBenchmark() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Logger logger = LogManager.getLogger("CarbonChat Compression Benchmark");
+        final int count = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 20_000;
+        final int train = List.of(args).indexOf("--train");
+        if (train >= 0) {
+            train(logger, Path.of(args[train + 1]), count);
+        } else {
+            benchmark(logger, count);
+        }
+    }
+
+    private static void train(final Logger logger, final Path file, final int count) throws IOException {
+        final List<byte[]> samples = bodies(count, TRAINING_SEED);
+        final int sampleBytes = samples.stream().mapToInt(sample -> sample.length).sum();
+
+        final ZstdDictTrainer trainer = new ZstdDictTrainer(sampleBytes, DICTIONARY_SIZE);
+        for (final byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        final byte[] dictionary = trainer.trainSamples();
+        Files.write(file, dictionary);
+        logger.info("Trained a {} byte dictionary on {} packets ({} bytes), written to {}",
+            dictionary.length, samples.size(), sampleBytes, file);
+    }
+
+    private static void benchmark(final Logger logger, final int count) {
+        final List<byte[]> bodies = bodies(count, BENCHMARK_SEED);
+        long rawBytes = 0;
+        long plainBytes = 0;
+        for (final byte[] body : bodies) {
+            rawBytes += 1 + body.length;
+            plainBytes += framedLength(body.length, body.length < THRESHOLD ? null : Zstd.compress(body, LEVEL));
+        }
+
+        // The same messages again, through the packet compression servers use
+        final UUID server = UUID.randomUUID();
+        final PacketCompression compression = new PacketCompression(THRESHOLD);
+        final PacketFormat format = PacketFormat.current(compression);
+        PacketFormat.register(server, format);
+        try {
+            for (final ChatMessagePacket packet : packets(server, count, BENCHMARK_SEED)) {
+                final ByteBuf buffer = Unpooled.buffer();
+                try {
+                    packet.write(buffer);
+                    final ChatMessagePacket read = new ChatMessagePacket(server, buffer);
+                    if (!read.message().equals(packet.message())) {
+                        throw new IllegalStateException("Packet changed in transit");
+                    }
+                } finally {
+                    buffer.release();
+                }
+            }
+        } finally {
+            PacketFormat.unregister(server, format);
+        }
+
+        final PacketCompression.Stats stats = compression.stats();
+        logger.info("{} chat packets, {} bytes uncompressed", bodies.size(), rawBytes);
+        logger.info("Without dictionary: {} bytes ({}%)", plainBytes, percent(plainBytes, rawBytes));
+        logger.info("With dictionary: {} bytes ({}%), {} packets compressed",
+            stats.wireBytes(), percent(stats.wireBytes(), rawBytes), stats.compressedPackets());
+        logger.info("Compressing took {}us and decompressing {}us per compressed packet",
+            perPacket(stats.compressNanos(), stats.compressedPackets()), perPacket(stats.decompressNanos(), stats.compressedPackets()));
+    }
+
+    private static List<ChatMessagePacket> packets(final UUID serverId, final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<SenderSnapshot> players = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            for (int i = 0; i < PLAYERS; i++) {
+                players.add(SimulatedChat.player(node, i, random));
+            }
+        }
+        final long start = TimeUnit.DAYS.toNanos(1);
+        final List<ChatMessagePacket> packets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final SenderSnapshot player = players.get(random.nextInt(players.size()));
+            final long sentAt = start + i * TimeUnit.MILLISECONDS.toNanos(5);
+            packets.add(new ChatMessagePacket(serverId, player, "carbon.channel.global", CHANNEL, SimulatedChat.message(player, random, sentAt)));
+        }
+        return packets;
+    }
+
+    // Bodies as the compression sees them, without its framing
+    private static List<byte[]> bodies(final int count, final long seed) {
+        final UUID serverId = UUID.randomUUID();
+        final PacketFormat format = PacketFormat.current(new PacketCompression(-1));
+        PacketFormat.register(serverId, format);
+        try {
+            final List<byte[]> bodies = new ArrayList<>(count);
+            for (final ChatMessagePacket packet : packets(serverId, count, seed)) {
+                final ByteBuf buffer = Unpooled.buffer();
+                try {
+                    packet.write(buffer);
+                    buffer.skipBytes(1);
+                    bodies.add(ByteBufUtil.getBytes(buffer));
+                } finally {
+                    buffer.release();
+                }
+            }
+            return bodies;
+        } finally {
+            PacketFormat.unregister(serverId, format);
+        }
+    }
+
+    private static long framedLength(final int length, final byte @Nullable [] compressed) {
+        if (compressed == null || compressed.length >= length) {
+            return 1 + length;
+        }
+        return 1 + varIntLength(length) + varIntLength(compressed.length) + compressed.length;
+    }
+
+    private static int varIntLength(final int value) {
+        return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : value < 1 << 21 ? 3 : value < 1 << 28 ? 4 : 5;
+    }
+
+    private static long percent(final long part, final long total) {
+        return Math.round(part * 100.0 / total);
+    }
+
+    private static String perPacket(final long nanos, final long packets) {
+        return String.format("%.1f", packets == 0 ? 0 : nanos / 1e3 / packets);
+    }
+
+}
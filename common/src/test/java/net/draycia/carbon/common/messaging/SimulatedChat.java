@@ -0,0 +1,136 @@
+/*
+ * CarbonChat
+ *
+ * Copyright (c) 2023 Josua Parks (Vicarious)
+ *                    Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.draycia.carbon.common.messaging;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import net.draycia.carbon.common.messaging.packets.SenderSnapshot;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+/**
+ * Players and chat messages resembling those on a network, for the cluster simulation and the packet compression
+ * benchmark.
+ *
+ * <p>Messages are rendered the way a channel with the default {@code <display_name>: <message>} format renders them,
+ * with a group prefix and the player's name carrying the hover, click and insertion the platforms give it.</p>
+ */
+@DefaultQualifier(NonNull.class)
+final class SimulatedChat {
+
+    private static final Key PLAYER = Key.key("minecraft", "player");
+    private static final List<String> GROUPS = List.of("default", "default", "default", "default", "vip", "moderator", "admin");
+    private static final List<String> WORDS = List.of(
+        "hi", "hello", "hey", "yo", "gg", "lol", "lmao", "ok", "yes", "no", "yeah", "nah", "thanks", "ty", "np",
+        "i", "you", "we", "they", "he", "she", "it", "me", "my", "your", "the", "a", "an", "and", "or", "but", "so",
+        "is", "are", "was", "be", "have", "has", "do", "does", "did", "can", "could", "will", "would", "should",
+        "what", "where", "when", "why", "how", "who", "anyone", "someone", "everyone", "here", "there", "now", "later",
+        "spawn", "base", "home", "town", "shop", "market", "warp", "tp", "tpa", "claim", "trust", "build", "farm",
+        "diamonds", "iron", "gold", "netherite", "emeralds", "wood", "stone", "dirt", "sand", "wool", "food",
+        "selling", "buying", "trade", "price", "each", "stack", "coins", "money", "pay", "free", "cheap",
+        "nether", "end", "overworld", "portal", "village", "dungeon", "raid", "boss", "dragon", "wither",
+        "pvp", "event", "arena", "team", "party", "join", "leave", "server", "lag", "restart", "discord", "vote",
+        "need", "want", "help", "please", "pls", "come", "go", "look", "find", "got", "get", "make", "kill", "died",
+        "today", "tonight", "tomorrow", "again", "just", "really", "very", "too", "not", "all", "some", "more"
+    );
+
+    private SimulatedChat() {
+    }
+
+    /**
+     * Creates a player of a simulated node.
+     *
+     * @param node   node index
+     * @param index  player index on the node
+     * @param random source of the player's group
+     * @return player snapshot
+     */
+    static SenderSnapshot player(final int node, final int index, final Random random) {
+        final UUID id = new UUID(random.nextLong(), random.nextLong());
+        final String name = "node" + node + "_player" + index;
+        final String group = GROUPS.get(random.nextInt(GROUPS.size()));
+        final Component displayName = Component.text()
+            .content(name)
+            .insertion(name)
+            .clickEvent(ClickEvent.suggestCommand("/tell " + name + " "))
+            .hoverEvent(HoverEvent.showEntity(PLAYER, id, Component.text(name)))
+            .build();
+        final List<String> groups = group.equals("default") ? List.of("default") : List.of(group, "default");
+        return new SenderSnapshot(id, name, displayName, group, groups, null, false, false, false);
+    }
+
+    /**
+     * Renders a chat message of a few random words, ending with the time it was sent.
+     *
+     * @param player sender
+     * @param random source of the words
+     * @param sentAt send time, see {@link #sentAt(Component)}
+     * @return rendered message
+     */
+    static Component message(final SenderSnapshot player, final Random random, final long sentAt) {
+        final StringBuilder text = new StringBuilder();
+        final int words = 1 + random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS.get(random.nextInt(WORDS.size()))).append(' ');
+        }
+        text.append(sentAt);
+
+        final TextComponent.Builder message = Component.text();
+        switch (player.primaryGroup()) {
+            case "vip" -> message.append(prefix("VIP", NamedTextColor.GOLD));
+            case "moderator" -> message.append(prefix("Mod", NamedTextColor.DARK_GREEN));
+            case "admin" -> message.append(prefix("Admin", NamedTextColor.RED));
+            default -> {
+            }
+        }
+        return message.append(player.displayName())
+            .append(Component.text(": ", NamedTextColor.WHITE))
+            .append(Component.text(text.toString(), NamedTextColor.WHITE))
+            .build();
+    }
+
+    /**
+     * Gets the time a message rendered by {@link #message} was sent.
+     *
+     * @param message rendered message
+     * @return send time
+     */
+    static long sentAt(final Component message) {
+        final String text = PlainTextComponentSerializer.plainText().serialize(message);
+        return Long.parseLong(text.substring(text.lastIndexOf(' ') + 1));
+    }
+
+    private static Component prefix(final String name, final NamedTextColor color) {
+        return Component.text()
+            .append(Component.text("[", NamedTextColor.WHITE))
+            .append(Component.text(name, color))
+            .append(Component.text("] ", NamedTextColor.WHITE))
+            .build();
+    }
+
+}
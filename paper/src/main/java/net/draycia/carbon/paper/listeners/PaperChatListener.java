@@ -27,6 +27,7 @@ import net.draycia.carbon.common.config.ConfigManager;
 import net.draycia.carbon.common.event.events.CarbonChatEventImpl;
 import net.draycia.carbon.common.listeners.ChatListenerInternal;
 import net.draycia.carbon.common.messages.CarbonMessages;
+import net.draycia.carbon.common.metrics.CarbonMetrics;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.identity.Identity;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
@@ -47,9 +48,10 @@ public final class PaperChatListener extends ChatListenerInternal implements Lis
     public PaperChatListener(
         final CarbonChat carbonChat,
         final CarbonMessages carbonMessages,
-        final ConfigManager configManager
+        final ConfigManager configManager,
+        final CarbonMetrics metrics
     ) {
-        super(carbonChat.eventHandler(), carbonMessages, configManager);
+        super(carbonChat.eventHandler(), carbonMessages, configManager, metrics);
         this.carbonChat = carbonChat;
         this.configManager = configManager;
     }
@@ -50,13 +50,7 @@ import static java.util.Objects.requireNonNull;
 @Singleton
 public class PaperMessageRenderer implements CarbonMessageRenderer {
 
-    private final Supplier<@MonotonicNonNull PlaceholderAPIMiniMessageParser> placeholderApiProcessor = Suppliers.memoize(() -> {
-        if (CarbonChatPaper.papiLoaded()) {
-            return PlaceholderAPIMiniMessageParser.create(MiniMessage.miniMessage());
-        }
-        return null;
-    });
-
+    private final Supplier<@MonotonicNonNull PlaceholderAPIMiniMessageParser> placeholderApiProcessor;
     private final MiniMessage miniMessage;
     private final ConfigManager configManager;
 
@@ -64,6 +58,15 @@ public class PaperMessageRenderer implements CarbonMessageRenderer {
     public PaperMessageRenderer(final ConfigManager configManager) {
         this.miniMessage = MiniMessage.miniMessage();
         this.configManager = configManager;
+        this.placeholderApiProcessor = Suppliers.memoize(() -> {
+            if (CarbonChatPaper.papiLoaded()) {
+                return PlaceholderAPIMiniMessageParser.create(
+                    MiniMessage.miniMessage(),
+                    () -> configManager.primaryConfig().placeholderApi().playerCacheMillis
+                );
+            }
+            return null;
+        });
     }
 
     @Override
@@ -19,9 +19,14 @@
  */
 package net.draycia.carbon.paper.messages;
 
-import java.util.function.UnaryOperator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
@@ -31,19 +36,37 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 
 @DefaultQualifier(NonNull.class)
 public final class PlaceholderAPIMiniMessageParser {
 
+    // All recipients of a message are rendered in one burst, this window lets them share the sender's placeholders
+    private static final Duration MESSAGE_WINDOW = Duration.ofMillis(50);
+
     private final MiniMessage miniMessage;
+    private final LongSupplier playerCacheMillis;
+    private final Cache<String, Template> templates = Caffeine.newBuilder()
+        .maximumSize(512)
+        .build();
+    private final Cache<MessageKey, String[]> messages = Caffeine.newBuilder()
+        .expireAfterWrite(MESSAGE_WINDOW)
+        .maximumSize(4096)
+        .build();
+    private volatile @Nullable PlayerCache playerCache;
 
-    private PlaceholderAPIMiniMessageParser(final MiniMessage miniMessage) {
+    private PlaceholderAPIMiniMessageParser(final MiniMessage miniMessage, final LongSupplier playerCacheMillis) {
         this.miniMessage = miniMessage;
+        this.playerCacheMillis = playerCacheMillis;
     }
 
     public static PlaceholderAPIMiniMessageParser create(final MiniMessage backingInstance) {
-        return new PlaceholderAPIMiniMessageParser(backingInstance);
+        return create(backingInstance, () -> 0);
+    }
+
+    public static PlaceholderAPIMiniMessageParser create(final MiniMessage backingInstance, final LongSupplier playerCacheMillis) {
+        return new PlaceholderAPIMiniMessageParser(backingInstance, playerCacheMillis);
     }
 
     private static boolean containsLegacyColorCodes(final String string) {
@@ -58,12 +81,13 @@ public final class PlaceholderAPIMiniMessageParser {
     }
 
     public Component parse(final OfflinePlayer player, final String input, final TagResolver tagResolver) {
-        return this.parse(
-            PlaceholderAPI.getPlaceholderPattern(),
-            match -> PlaceholderAPI.setPlaceholders(player, match),
-            input,
-            tagResolver
-        );
+        final Template template = this.template(input);
+        final String[] senderValues = this.senderValues(player, input, template);
+
+        return this.render(template, index -> {
+            final @Nullable String value = senderValues[index];
+            return value != null ? value : PlaceholderAPI.setPlaceholders(player, template.placeholders.get(index));
+        }, tagResolver);
     }
 
     public Component parse(final OfflinePlayer player, final String input) {
@@ -71,46 +95,176 @@ public final class PlaceholderAPIMiniMessageParser {
     }
 
     public Component parseRelational(final Player one, final Player two, final String input, final TagResolver tagResolver) {
-        return this.parse(
-            PlaceholderAPI.getPlaceholderPattern(),
-            match -> PlaceholderAPI.setPlaceholders(one, PlaceholderAPI.setRelationalPlaceholders(one, two, match)),
-            input,
-            tagResolver
-        );
+        final Template template = this.template(input);
+        final String[] senderValues = this.senderValues(one, input, template);
+
+        return this.render(template, index -> {
+            final @Nullable String value = senderValues[index];
+            if (value != null) {
+                return value;
+            }
+            final String match = template.placeholders.get(index);
+            return PlaceholderAPI.setPlaceholders(one, PlaceholderAPI.setRelationalPlaceholders(one, two, match));
+        }, tagResolver);
     }
 
     public Component parseRelational(final Player one, final Player two, final String input) {
         return this.parseRelational(one, two, input, TagResolver.empty());
     }
 
-    private Component parse(
-        final Pattern pattern,
-        final UnaryOperator<String> placeholderResolver,
-        final String input,
+    private Template template(final String input) {
+        return this.templates.get(input, Template::parse);
+    }
+
+    // Resolves the non-relational placeholders once per message, relational ones are left null for per-recipient resolution
+    private String[] senderValues(final OfflinePlayer player, final String input, final Template template) {
+        if (template.placeholders.isEmpty()) {
+            return new String[0];
+        }
+
+        // Expansions can use Carbon's API, compute outside the cache so they never run while Caffeine holds a lock
+        final MessageKey key = new MessageKey(player.getUniqueId(), input);
+        final String @Nullable [] cached = this.messages.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final @Nullable PlayerCache cache = this.playerCache();
+        final String[] values = new String[template.placeholders.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            final String match = template.placeholders.get(i);
+            if (template.relational[i]) {
+                continue;
+            }
+            values[i] = cache == null ? PlaceholderAPI.setPlaceholders(player, match) : cache.get(player, match);
+        }
+
+        this.messages.put(key, values);
+        return values;
+    }
+
+    private @Nullable PlayerCache playerCache() {
+        final long millis = this.playerCacheMillis.getAsLong();
+        if (millis <= 0) {
+            this.playerCache = null;
+            return null;
+        }
+
+        final @Nullable PlayerCache cache = this.playerCache;
+        if (cache != null && cache.millis == millis) {
+            return cache;
+        }
+
+        final PlayerCache created = new PlayerCache(millis);
+        this.playerCache = created;
+        return created;
+    }
+
+    private Component render(
+        final Template template,
+        final PlaceholderValues values,
         final TagResolver originalTags
     ) {
-        final Matcher matcher = pattern.matcher(input);
         final TagResolver.Builder tagResolver = TagResolver.builder().resolvers(originalTags);
-        final StringBuilder builder = new StringBuilder();
+        final StringBuilder builder = new StringBuilder(template.length);
         int id = 0;
 
-        while (matcher.find()) {
-            final String match = matcher.group();
-            final String replaced = placeholderResolver.apply(match);
+        for (int i = 0; i < template.placeholders.size(); i++) {
+            builder.append(template.literals.get(i));
+
+            final String match = template.placeholders.get(i);
+            final String replaced = values.value(i);
 
             if (match.equals(replaced) || !containsLegacyColorCodes(replaced)) {
-                matcher.appendReplacement(builder, Matcher.quoteReplacement(replaced));
+                builder.append(replaced);
             } else {
                 final String key = "papi_generated_template_" + id;
                 id++;
                 tagResolver.tag(key, Tag.inserting(LegacyComponentSerializer.legacySection().deserialize(replaced)));
-                matcher.appendReplacement(builder, Matcher.quoteReplacement("<" + key + ">"));
+                builder.append('<').append(key).append('>');
             }
         }
 
-        matcher.appendTail(builder);
+        builder.append(template.literals.get(template.placeholders.size()));
 
         return this.miniMessage.deserialize(builder.toString(), tagResolver.build());
     }
 
+    @FunctionalInterface
+    private interface PlaceholderValues {
+
+        String value(int index);
+
+    }
+
+    private record MessageKey(UUID player, String input) {
+    }
+
+    private record PlayerPlaceholder(UUID player, String placeholder) {
+    }
+
+    private static final class PlayerCache {
+
+        private final long millis;
+        private final Cache<PlayerPlaceholder, String> values;
+
+        PlayerCache(final long millis) {
+            this.millis = millis;
+            this.values = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(millis))
+                .maximumSize(16384)
+                .build();
+        }
+
+        String get(final OfflinePlayer player, final String placeholder) {
+            final PlayerPlaceholder key = new PlayerPlaceholder(player.getUniqueId(), placeholder);
+            final @Nullable String cached = this.values.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+            final String value = PlaceholderAPI.setPlaceholders(player, placeholder);
+            this.values.put(key, value);
+            return value;
+        }
+
+    }
+
+    // The input split around PlaceholderAPI placeholders, literals.size() == placeholders.size() + 1
+    private static final class Template {
+
+        private final List<String> literals;
+        private final List<String> placeholders;
+        private final boolean[] relational;
+        private final int length;
+
+        private Template(final List<String> literals, final List<String> placeholders, final int length) {
+            this.literals = literals;
+            this.placeholders = placeholders;
+            this.relational = new boolean[placeholders.size()];
+            for (int i = 0; i < this.relational.length; i++) {
+                this.relational[i] = PlaceholderAPI.getRelationalPlaceholderPattern().matcher(placeholders.get(i)).matches();
+            }
+            this.length = length;
+        }
+
+        static Template parse(final String input) {
+            final Matcher matcher = PlaceholderAPI.getPlaceholderPattern().matcher(input);
+            final List<String> literals = new ArrayList<>();
+            final List<String> placeholders = new ArrayList<>();
+            int last = 0;
+
+            while (matcher.find()) {
+                literals.add(input.substring(last, matcher.start()));
+                placeholders.add(matcher.group());
+                last = matcher.end();
+            }
+
+            literals.add(input.substring(last));
+
+            return new Template(List.copyOf(literals), List.copyOf(placeholders), input.length());
+        }
+
+    }
+
 }